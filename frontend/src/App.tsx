@@ -3,6 +3,8 @@ import { AgentActivity, Header, SearchBox, SearchResults } from './components';
 import { mockSearch } from './data/mockData';
 import type {
   AgentToolCall,
+  OverviewDelta,
+  PartialResults,
   PostCategory,
   SearchResponse,
   SpaceType,
@@ -17,6 +19,36 @@ const OPTIONAL_SPACES: SpaceType[] = [
   'article',
 ];
 
+const mergePartialResults = (
+  previous: SearchResponse | null,
+  query: string,
+  partial: PartialResults
+): SearchResponse => {
+  const byKey = new Map((previous?.ayahResults ?? []).map((result) => [result.ayah_key, result]));
+  for (const result of partial.ayahResults) {
+    byKey.set(result.ayah_key, result);
+  }
+  const ayahResults = [...byKey.values()].sort((a, b) => b.topScore - a.topScore);
+  const directHits = previous?.directHits ?? [];
+  return {
+    query,
+    aiOverview: previous?.aiOverview ?? null,
+    directHits,
+    ayahResults,
+    totalResults: directHits.length + ayahResults.length,
+  };
+};
+
+const applyOverviewDelta = (
+  previous: SearchResponse | null,
+  query: string,
+  delta: OverviewDelta
+): SearchResponse => {
+  const base = previous ?? { query, directHits: [], ayahResults: [], totalResults: 0 };
+  const currentText = delta.reset ? '' : base.aiOverview?.text ?? '';
+  return { ...base, aiOverview: { text: currentText + delta.text } };
+};
+
 type SearchSuggestion = {
   title: string;
   description: string;
@@ -208,6 +240,22 @@ function App() {
           );
           break;
         }
+        case 'partial_results': {
+          const partial = event.data as PartialResults | undefined;
+          if (!partial || partial.ayahResults.length === 0) {
+            break;
+          }
+          setSearchResults((prev) => mergePartialResults(prev, normalizedQuery, partial));
+          break;
+        }
+        case 'overview_delta': {
+          const delta = event.data as OverviewDelta | undefined;
+          if (!delta) {
+            break;
+          }
+          setSearchResults((prev) => applyOverviewDelta(prev, normalizedQuery, delta));
+          break;
+        }
         case 'response': {
           const response = event.data as SearchResponse | undefined;
           if (!response) {
@@ -17,7 +17,7 @@ export function SearchResults({
   activeSpaces,
   postCategory,
 }: SearchResultsProps) {
-  if (isLoading) {
+  if (isLoading && !results) {
     return (
       <div className="w-full max-w-4xl mx-auto mt-8">
         <div className="flex items-center justify-center py-12">
@@ -124,9 +124,27 @@ export interface AgentToolCall {
 export interface AgentMetadata {
   mode: string;
   plannerModel?: string | null;
+  plannerMode?: string | null;
   steps: number;
   usedLlmPlanner: boolean;
   usedHeuristicFallback: boolean;
+  deadlineTruncated?: boolean;
+  incomplete?: boolean;
+  approximateCacheHit?: boolean;
+  timings?: SearchTimings | null;
+}
+
+export interface StageTiming {
+  stage: string;
+  variant?: string | null;
+  step?: number | null;
+  durationMs: number;
+}
+
+export interface SearchTimings {
+  cached: boolean;
+  totalMs: number;
+  stages: StageTiming[];
 }
 
 export interface ConsolidatedAyahResult {
@@ -152,6 +170,17 @@ export interface SearchResponse {
   agent?: AgentMetadata | null;
 }
 
+export interface PartialResults {
+  step: number;
+  ayahResults: ConsolidatedAyahResult[];
+  totalAyahResults: number;
+}
+
+export interface OverviewDelta {
+  text: string;
+  reset: boolean;
+}
+
 export interface FilterOptions {
   spaces: SpaceType[];
   language: string;
@@ -1,6 +1,7 @@
 plugins {
     id("java")
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -10,16 +11,24 @@ repositories {
 dependencies {
     implementation("io.javalin:javalin-bundle:7.0.0-beta.1")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.20.1")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:2.20.1")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:2.20.1")
     implementation("com.google.guava:guava:33.3.1-jre")
     implementation("org.slf4j:slf4j-simple:2.1.0-alpha1")
     implementation("org.xerial:sqlite-jdbc:3.51.1.0")
 }
 
 java {
-    sourceCompatibility = JavaVersion.VERSION_17
-    targetCompatibility = JavaVersion.VERSION_17
+    sourceCompatibility = JavaVersion.VERSION_21
+    targetCompatibility = JavaVersion.VERSION_21
 }
 
 application {
     mainClass.set("com.quran.omni.Main")
 }
+
+jmh {
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
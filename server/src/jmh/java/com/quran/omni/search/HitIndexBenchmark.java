@@ -0,0 +1,107 @@
+package com.quran.omni.search;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.quran.omni.SpaceType;
+import com.quran.omni.goodmem.GoodMemClient.MemoryHit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One agent loop's worth of hit bookkeeping: {@code totalHits} hits arrive over {@code STEPS}
+ * steps, about a fifth of them repeats, and after each step the loop reads a top-10 preview and
+ * the full ranking for partial results. Compares {@link HitIndex} with the previous string-keyed
+ * map that was re-sorted on every read.
+ * <p>
+ * Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HitIndexBenchmark {
+    private static final int STEPS = 6;
+    private static final SpaceType[] SPACES = SpaceType.values();
+
+    @Param({"100", "500", "1000", "2000"})
+    public int totalHits;
+
+    private List<List<MemoryHit>> steps;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int perStep = Math.max(1, totalHits / STEPS);
+        List<MemoryHit> seen = new ArrayList<>();
+        steps = new ArrayList<>();
+        for (int step = 0; step < STEPS; step++) {
+            List<MemoryHit> batch = new ArrayList<>(perStep);
+            for (int i = 0; i < perStep; i++) {
+                if (!seen.isEmpty() && random.nextInt(5) == 0) {
+                    MemoryHit repeat = seen.get(random.nextInt(seen.size()));
+                    batch.add(new MemoryHit(repeat.spaceType(), repeat.memoryId(), repeat.metadata(), repeat.text(), random.nextDouble()));
+                    continue;
+                }
+                MemoryHit hit = new MemoryHit(
+                    SPACES[random.nextInt(SPACES.length)],
+                    "memory-" + step + "-" + i,
+                    JsonNodeFactory.instance.objectNode(),
+                    "text",
+                    random.nextDouble()
+                );
+                seen.add(hit);
+                batch.add(hit);
+            }
+            steps.add(batch);
+        }
+    }
+
+    @Benchmark
+    public void hitIndex(Blackhole blackhole) {
+        HitIndex index = new HitIndex();
+        for (List<MemoryHit> batch : steps) {
+            blackhole.consume(index.merge(batch));
+            blackhole.consume(index.top(10));
+            blackhole.consume(index.sorted());
+        }
+    }
+
+    @Benchmark
+    public void resortedMap(Blackhole blackhole) {
+        Map<String, MemoryHit> bestHits = new LinkedHashMap<>();
+        for (List<MemoryHit> batch : steps) {
+            int added = 0;
+            for (MemoryHit hit : batch) {
+                String key = hit.spaceType().apiName() + ":" + hit.memoryId();
+                MemoryHit existing = bestHits.get(key);
+                if (existing == null) {
+                    bestHits.put(key, hit);
+                    added += 1;
+                } else if (hit.score() > existing.score()) {
+                    bestHits.put(key, hit);
+                }
+            }
+            blackhole.consume(added);
+            blackhole.consume(sorted(bestHits).subList(0, Math.min(10, bestHits.size())));
+            blackhole.consume(sorted(bestHits));
+        }
+    }
+
+    private static List<MemoryHit> sorted(Map<String, MemoryHit> bestHits) {
+        List<MemoryHit> sorted = new ArrayList<>(bestHits.values());
+        sorted.sort(Comparator.comparingDouble(MemoryHit::score).reversed());
+        return sorted;
+    }
+}
@@ -32,7 +32,38 @@ public record AppConfig(
     String plannerModel,
     List<String> plannerFallbackModels,
     String summaryModel,
-    List<String> summaryFallbackModels
+    List<String> summaryFallbackModels,
+    boolean virtualThreads,
+    int goodMemMaxConcurrency,
+    int openAiMaxConcurrency,
+    int batchMaxRequests,
+    int batchParallelism,
+    boolean overviewStreaming,
+    boolean searchCacheGzip,
+    boolean admissionControl,
+    int admissionInitialLimit,
+    int admissionMinLimit,
+    int admissionMaxLimit,
+    Duration searchDeadline,
+    Duration deadlineMinCallBudget,
+    boolean speculativeRetrieval,
+    boolean localReferenceParser,
+    String plannerMode,
+    boolean earlyStop,
+    double earlyStopMinGain,
+    int earlyStopMinSteps,
+    boolean goodMemHedging,
+    double goodMemHedgeQuantile,
+    double goodMemHedgeBudget,
+    Duration goodMemHedgeMinDelay,
+    Map<SpaceType, Integer> bulkheadConcurrency,
+    Map<SpaceType, Integer> bulkheadQueue,
+    boolean searchCacheNearDuplicates,
+    double searchCacheSimilarity,
+    Duration searchCacheTtl,
+    Duration searchCacheHardTtl,
+    double searchCacheRefreshAhead,
+    int searchCacheRefreshAheadHits
 ) {
     private static final String DEFAULT_OVERVIEW_SYS_PROMPT = String.join("\n",
         "You are an AI assistant generating a concise AI Overview for Quran.com search.",
@@ -120,6 +151,43 @@ public record AppConfig(
         List<String> plannerFallbackModels = splitCsv(readEnv("SEARCH_PLANNER_FALLBACK_MODELS", "gpt-4.1"));
         String summaryModel = readEnv("SEARCH_SUMMARY_MODEL", plannerModel);
         List<String> summaryFallbackModels = splitCsv(readEnv("SEARCH_SUMMARY_FALLBACK_MODELS", ""));
+        boolean virtualThreads = readBoolEnv("SEARCH_VIRTUAL_THREADS", true);
+        int goodMemMaxConcurrency = readIntEnv("GOODMEM_MAX_CONCURRENCY", 64);
+        int openAiMaxConcurrency = readIntEnv("OPENAI_MAX_CONCURRENCY", 32);
+        int batchMaxRequests = readIntEnv("SEARCH_BATCH_MAX_REQUESTS", 500);
+        int batchParallelism = readIntEnv("SEARCH_BATCH_PARALLELISM", 16);
+        boolean overviewStreaming = readBoolEnv("SEARCH_OVERVIEW_STREAMING", true);
+        boolean searchCacheGzip = readBoolEnv("SEARCH_CACHE_GZIP", true);
+        boolean admissionControl = readBoolEnv("SEARCH_ADMISSION_CONTROL", true);
+        int admissionInitialLimit = readIntEnv("SEARCH_ADMISSION_INITIAL_LIMIT", 32);
+        int admissionMinLimit = readIntEnv("SEARCH_ADMISSION_MIN_LIMIT", 4);
+        int admissionMaxLimit = readIntEnv("SEARCH_ADMISSION_MAX_LIMIT", 512);
+        Duration searchDeadline = Duration.ofMillis(readIntEnv("SEARCH_DEADLINE_MS", 25000));
+        Duration deadlineMinCallBudget = Duration.ofMillis(readIntEnv("SEARCH_DEADLINE_MIN_CALL_MS", 1500));
+        boolean speculativeRetrieval = readBoolEnv("SEARCH_SPECULATIVE_RETRIEVAL", true);
+        boolean localReferenceParser = readBoolEnv("SEARCH_LOCAL_REFERENCE_PARSER", true);
+        String plannerMode = readEnv("SEARCH_PLANNER_MODE", "step");
+        boolean earlyStop = readBoolEnv("SEARCH_EARLY_STOP", true);
+        double earlyStopMinGain = readDoubleEnv("SEARCH_EARLY_STOP_MIN_GAIN", 0.1);
+        int earlyStopMinSteps = readIntEnv("SEARCH_EARLY_STOP_MIN_STEPS", 2);
+        boolean goodMemHedging = readBoolEnv("GOODMEM_HEDGING", false);
+        double goodMemHedgeQuantile = readDoubleEnv("GOODMEM_HEDGE_QUANTILE", 0.95);
+        double goodMemHedgeBudget = readDoubleEnv("GOODMEM_HEDGE_BUDGET", 0.05);
+        Duration goodMemHedgeMinDelay = Duration.ofMillis(readIntEnv("GOODMEM_HEDGE_MIN_DELAY_MS", 100));
+        int defaultBulkheadConcurrency = readIntEnv("SEARCH_BULKHEAD_CONCURRENCY", 16);
+        int defaultBulkheadQueue = readIntEnv("SEARCH_BULKHEAD_QUEUE", 64);
+        Map<SpaceType, Integer> bulkheadConcurrency = new EnumMap<>(SpaceType.class);
+        Map<SpaceType, Integer> bulkheadQueue = new EnumMap<>(SpaceType.class);
+        for (SpaceType type : SpaceType.values()) {
+            bulkheadConcurrency.put(type, readIntEnv("SEARCH_BULKHEAD_CONCURRENCY_" + type.envKey(), defaultBulkheadConcurrency));
+            bulkheadQueue.put(type, readIntEnv("SEARCH_BULKHEAD_QUEUE_" + type.envKey(), defaultBulkheadQueue));
+        }
+        boolean searchCacheNearDuplicates = readBoolEnv("SEARCH_CACHE_NEAR_DUPLICATES", true);
+        double searchCacheSimilarity = readDoubleEnv("SEARCH_CACHE_SIMILARITY", 0.8);
+        Duration searchCacheTtl = Duration.ofSeconds(readIntEnv("SEARCH_CACHE_TTL_SECONDS", 600));
+        Duration searchCacheHardTtl = Duration.ofSeconds(readIntEnv("SEARCH_CACHE_HARD_TTL_SECONDS", 3600));
+        double searchCacheRefreshAhead = readDoubleEnv("SEARCH_CACHE_REFRESH_AHEAD", 0.2);
+        int searchCacheRefreshAheadHits = readIntEnv("SEARCH_CACHE_REFRESH_AHEAD_HITS", 5);
 
         return new AppConfig(
             port,
@@ -146,7 +214,38 @@ public record AppConfig(
             plannerModel,
             plannerFallbackModels,
             summaryModel,
-            summaryFallbackModels
+            summaryFallbackModels,
+            virtualThreads,
+            goodMemMaxConcurrency,
+            openAiMaxConcurrency,
+            batchMaxRequests,
+            batchParallelism,
+            overviewStreaming,
+            searchCacheGzip,
+            admissionControl,
+            admissionInitialLimit,
+            admissionMinLimit,
+            admissionMaxLimit,
+            searchDeadline,
+            deadlineMinCallBudget,
+            speculativeRetrieval,
+            localReferenceParser,
+            plannerMode,
+            earlyStop,
+            earlyStopMinGain,
+            earlyStopMinSteps,
+            goodMemHedging,
+            goodMemHedgeQuantile,
+            goodMemHedgeBudget,
+            goodMemHedgeMinDelay,
+            bulkheadConcurrency,
+            bulkheadQueue,
+            searchCacheNearDuplicates,
+            searchCacheSimilarity,
+            searchCacheTtl,
+            searchCacheHardTtl,
+            searchCacheRefreshAhead,
+            searchCacheRefreshAheadHits
         );
     }
 
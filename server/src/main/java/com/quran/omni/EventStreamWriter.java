@@ -0,0 +1,91 @@
+package com.quran.omni;
+
+import com.quran.omni.search.ResponseEncoding;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes search events to a streaming response. JSON events are newline-delimited; Smile and CBOR
+ * events are framed with a 4-byte big-endian length prefix because binary payloads may contain '\n'.
+ * The first failed write marks the client as gone: {@code onDisconnect} runs once and later writes
+ * are dropped. A heartbeat is skipped while another write is in progress, since that write keeps the
+ * connection alive anyway, so a slow client never holds up a heartbeat thread.
+ */
+final class EventStreamWriter {
+    private static final byte[] EMPTY_FRAME = new byte[4];
+    private static final byte[] BLANK_LINE = new byte[] {'\n'};
+
+    private final OutputStream output;
+    private final ResponseEncoding encoding;
+    private final Runnable onDisconnect;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed;
+
+    EventStreamWriter(OutputStream output, ResponseEncoding encoding) {
+        this(output, encoding, () -> { });
+    }
+
+    EventStreamWriter(OutputStream output, ResponseEncoding encoding, Runnable onDisconnect) {
+        this.output = output;
+        this.encoding = encoding;
+        this.onDisconnect = onDisconnect;
+    }
+
+    void write(Object payload) {
+        byte[] bytes;
+        try {
+            bytes = encoding.writer().writeValueAsBytes(payload);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to encode stream event", ex);
+        }
+        if (encoding.isBinary()) {
+            int length = bytes.length;
+            send(new byte[] {
+                (byte) (length >>> 24),
+                (byte) (length >>> 16),
+                (byte) (length >>> 8),
+                (byte) length
+            }, bytes);
+        } else {
+            send(bytes, BLANK_LINE);
+        }
+    }
+
+    /**
+     * Write a keep-alive (a blank line, or an empty frame) so a closed connection is noticed between events.
+     */
+    void heartbeat() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        sendLocked(encoding.isBinary() ? EMPTY_FRAME : BLANK_LINE, null);
+    }
+
+    private void send(byte[] first, byte[] second) {
+        lock.lock();
+        sendLocked(first, second);
+    }
+
+    /**
+     * Write with {@code lock} held by the caller; releases it before {@code onDisconnect} runs.
+     */
+    private void sendLocked(byte[] first, byte[] second) {
+        try {
+            if (closed) {
+                return;
+            }
+            output.write(first);
+            if (second != null) {
+                output.write(second);
+            }
+            output.flush();
+            return;
+        } catch (IOException ex) {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        onDisconnect.run();
+    }
+}
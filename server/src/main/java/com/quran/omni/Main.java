@@ -1,24 +1,39 @@
 package com.quran.omni;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quran.omni.goodmem.GoodMemClient;
 import com.quran.omni.goodmem.SpaceRegistry;
+import com.quran.omni.search.CachedSearchResponse;
 import com.quran.omni.search.Models;
+import com.quran.omni.search.ResponseEncoding;
+import com.quran.omni.search.SearchCancellation;
+import com.quran.omni.search.SearchCancelledException;
+import com.quran.omni.search.SearchOverloadedException;
 import com.quran.omni.search.SearchService;
+import com.quran.omni.search.TimedSearchResponse;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
 import io.javalin.json.JavalinJackson;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public final class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String TIMEOUT_HEADER = "X-Search-Timeout-Ms";
+    private static final long HEARTBEAT_INTERVAL_MS = 2000;
+    private static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static void main(String[] args) {
         AppConfig config = AppConfig.fromEnv();
@@ -28,17 +43,28 @@ public final class Main {
 
         Javalin app = Javalin.create(javalinConfig -> {
             javalinConfig.jsonMapper(new JavalinJackson());
+            javalinConfig.concurrency.useVirtualThreads = config.virtualThreads();
             javalinConfig.routes.before(ctx -> {
                 ctx.header("Access-Control-Allow-Origin", "*");
+                ctx.header("Timing-Allow-Origin", "*");
                 ctx.header("Access-Control-Allow-Methods", "GET,POST,OPTIONS");
-                ctx.header("Access-Control-Allow-Headers", "Content-Type");
+                ctx.header("Access-Control-Allow-Headers", "Content-Type, " + TIMEOUT_HEADER);
             });
             javalinConfig.routes.options("/*", ctx -> ctx.status(HttpStatus.NO_CONTENT));
 
             javalinConfig.routes.get("/api/health", ctx -> ctx.json(Map.of("status", "ok")));
+            javalinConfig.routes.get("/api/metrics", ctx -> ctx
+                .contentType(SearchService.prometheusContentType())
+                .result(searchService.prometheusMetrics()));
             javalinConfig.routes.get("/api/search", ctx -> handleSearchQuery(ctx, searchService));
             javalinConfig.routes.post("/api/search", ctx -> handleSearchBody(ctx, searchService));
             javalinConfig.routes.post("/api/search/stream", ctx -> handleSearchStream(ctx, searchService));
+            javalinConfig.routes.post("/api/search/batch", ctx -> handleSearchBatch(ctx, searchService));
+
+            javalinConfig.routes.exception(SearchOverloadedException.class, (ex, ctx) -> {
+                ctx.header("Retry-After", Integer.toString(ex.retryAfterSeconds()));
+                ctx.status(HttpStatus.TOO_MANY_REQUESTS).json(Map.of("error", "overloaded", "message", ex.getMessage()));
+            });
 
             javalinConfig.routes.exception(IllegalArgumentException.class, (ex, ctx) -> {
                 ctx.status(HttpStatus.BAD_REQUEST).json(Map.of("error", "bad_request", "message", ex.getMessage()));
@@ -56,54 +82,210 @@ public final class Main {
         });
 
         app.start("0.0.0.0", config.port());
-        logger.info("Search server started on port {}", config.port());
+        logger.info("Search server started on port {} virtualThreads={}", config.port(), config.virtualThreads());
     }
 
-    private static void handleSearchQuery(Context ctx, SearchService searchService) {
+    private static void handleSearchQuery(Context ctx, SearchService searchService) throws IOException {
         String query = firstNonBlank(ctx.queryParam("query"), ctx.queryParam("q"));
         String spaces = ctx.queryParam("spaces");
         String language = firstNonBlank(ctx.queryParam("language"), ctx.queryParam("lang"));
         Integer limit = parseInt(ctx.queryParam("limit"));
         Integer maxSteps = parseInt(ctx.queryParam("maxSteps"));
+        Integer timeoutMs = firstNonNull(parseInt(ctx.queryParam("timeoutMs")), parseInt(ctx.header(TIMEOUT_HEADER)));
+        Boolean timings = parseBoolean(ctx.queryParam("timings"));
+        String planner = ctx.queryParam("planner");
+        Boolean fast = parseBoolean(ctx.queryParam("fast"));
         List<String> spaceList = spaces == null || spaces.isBlank() ? null : List.of(spaces);
-        Models.SearchRequest request = new Models.SearchRequest(query, spaceList, language, limit, maxSteps);
-        Models.SearchResponse response = searchService.search(request);
-        ctx.json(response);
+        Models.SearchRequest request = new Models.SearchRequest(
+            query,
+            spaceList,
+            language,
+            limit,
+            maxSteps,
+            timeoutMs,
+            timings,
+            planner,
+            fast
+        );
+        TimedSearchResponse result = searchService.searchSerialized(request);
+        ResponseEncoding encoding = ResponseEncoding.fromAccept(ctx.header("Accept"));
+        ctx.header("Server-Timing", result.serverTiming());
+        CachedSearchResponse response = result.cached();
+        boolean gzipped = response.servesGzip(encoding, ctx.header("Accept-Encoding"));
+        if (!result.perRequest() && response.matches(ctx.header("If-None-Match"), encoding, gzipped)) {
+            ctx.header("ETag", response.etag(encoding, gzipped));
+            ctx.header("Vary", "Accept, Accept-Encoding");
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return;
+        }
+        writeSearchResponse(ctx, result, encoding);
     }
 
-    private static void handleSearchBody(Context ctx, SearchService searchService) {
+    private static void handleSearchBody(Context ctx, SearchService searchService) throws IOException {
+        Models.SearchRequest request = readSearchRequest(ctx);
+        TimedSearchResponse result = searchService.searchSerialized(request);
+        ctx.header("Server-Timing", result.serverTiming());
+        writeSearchResponse(ctx, result, ResponseEncoding.fromAccept(ctx.header("Accept")));
+    }
+
+    /**
+     * Read a search request body; the {@code X-Search-Timeout-Ms} header applies when the body sets no timeout.
+     */
+    private static Models.SearchRequest readSearchRequest(Context ctx) {
         Models.SearchRequest request = ctx.bodyAsClass(Models.SearchRequest.class);
-        Models.SearchResponse response = searchService.search(request);
-        ctx.json(response);
+        Integer headerTimeout = parseInt(ctx.header(TIMEOUT_HEADER));
+        if (request.timeoutMs() != null || headerTimeout == null) {
+            return request;
+        }
+        return new Models.SearchRequest(
+            request.query(),
+            request.spaces(),
+            request.language(),
+            request.limit(),
+            request.maxSteps(),
+            headerTimeout,
+            request.timings(),
+            request.planner(),
+            request.fast()
+        );
+    }
+
+    /**
+     * Serve the cached bytes, or encode a fresh body when the request asked for its own timings or
+     * was answered from a near-duplicate query.
+     */
+    private static void writeSearchResponse(
+        Context ctx,
+        TimedSearchResponse result,
+        ResponseEncoding encoding
+    ) throws IOException {
+        if (!result.perRequest()) {
+            writeCachedResponse(ctx, result.cached(), encoding);
+            return;
+        }
+        byte[] body = encoding.responseWriter().writeValueAsBytes(result.response());
+        HttpServletResponse res = ctx.res();
+        res.setContentType(encoding.mediaType());
+        res.setHeader("Cache-Control", "no-store");
+        res.setContentLength(body.length);
+        res.getOutputStream().write(body);
+    }
+
+    private static void writeCachedResponse(
+        Context ctx,
+        CachedSearchResponse response,
+        ResponseEncoding encoding
+    ) throws IOException {
+        byte[] body = response.body(encoding);
+        HttpServletResponse res = ctx.res();
+        res.setContentType(encoding.mediaType());
+        boolean gzipped = response.servesGzip(encoding, ctx.header("Accept-Encoding"));
+        res.setHeader("ETag", response.etag(encoding, gzipped));
+        res.setHeader("Vary", "Accept, Accept-Encoding");
+        if (gzipped) {
+            res.setHeader("Content-Encoding", "gzip");
+            body = response.gzip();
+        }
+        res.setContentLength(body.length);
+        res.getOutputStream().write(body);
     }
 
     private static void handleSearchStream(Context ctx, SearchService searchService) throws IOException {
-        Models.SearchRequest request = ctx.bodyAsClass(Models.SearchRequest.class);
-        ctx.contentType("application/x-ndjson; charset=utf-8");
+        Models.SearchRequest request = readSearchRequest(ctx);
+        ResponseEncoding encoding = ResponseEncoding.fromAccept(ctx.header("Accept"));
+        ctx.contentType(encoding.streamContentType());
         ctx.status(HttpStatus.OK);
 
-        PrintWriter writer = ctx.res().getWriter();
+        SearchCancellation cancellation = new SearchCancellation();
+        EventStreamWriter writer = new EventStreamWriter(ctx.res().getOutputStream(), encoding, cancellation::cancel);
+        // The scheduler only dispatches: a heartbeat blocked on this client's socket must not delay
+        // every other stream's heartbeat.
+        ScheduledFuture<?> heartbeat = HEARTBEATS.scheduleAtFixedRate(
+            () -> Thread.ofVirtual().name("stream-heartbeat").start(writer::heartbeat),
+            HEARTBEAT_INTERVAL_MS,
+            HEARTBEAT_INTERVAL_MS,
+            TimeUnit.MILLISECONDS
+        );
         try {
             Models.SearchResponse response = searchService.search(
                 request,
                 new SearchService.SearchEventListener() {
                     @Override
                     public void onStatus(String message) {
-                        writeEvent(writer, Map.of("type", "status", "message", message));
+                        writer.write(Map.of("type", "status", "message", message));
                     }
 
                     @Override
                     public void onToolCall(Models.AgentToolCall toolCall) {
-                        writeEvent(writer, Map.of("type", "tool_call", "data", toolCall));
+                        writer.write(Map.of("type", "tool_call", "data", toolCall));
                     }
-                }
+
+                    @Override
+                    public void onPartialResults(Models.PartialResults partialResults) {
+                        writer.write(Map.of("type", "partial_results", "data", partialResults));
+                    }
+
+                    @Override
+                    public void onOverviewDelta(Models.OverviewDelta overviewDelta) {
+                        writer.write(Map.of("type", "overview_delta", "data", overviewDelta));
+                    }
+                },
+                cancellation
             );
-            writeEvent(writer, Map.of("type", "response", "data", response));
-            writeEvent(writer, Map.of("type", "done", "ok", true));
+            writer.write(Map.of("type", "response", "data", response));
+            writer.write(Map.of("type", "done", "ok", true));
+        } catch (SearchOverloadedException ex) {
+            if (!ctx.res().isCommitted()) {
+                ctx.status(HttpStatus.TOO_MANY_REQUESTS);
+                ctx.res().setHeader("Retry-After", Integer.toString(ex.retryAfterSeconds()));
+            }
+            writer.write(Map.of("type", "error", "error", "overloaded", "message", ex.getMessage()));
+            writer.write(Map.of("type", "done", "ok", false));
+        } catch (SearchCancelledException ex) {
+            logger.info("Stream search cancelled after client disconnect");
         } catch (Exception ex) {
             logger.error("Stream search failed", ex);
-            writeEvent(writer, Map.of("type", "error", "message", ex.getMessage() == null ? "Unexpected server error" : ex.getMessage()));
-            writeEvent(writer, Map.of("type", "done", "ok", false));
+            writer.write(Map.of("type", "error", "message", ex.getMessage() == null ? "Unexpected server error" : ex.getMessage()));
+            writer.write(Map.of("type", "done", "ok", false));
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private static void handleSearchBatch(Context ctx, SearchService searchService) throws IOException {
+        Models.BatchSearchRequest batch = ctx.bodyAsClass(Models.BatchSearchRequest.class);
+        ResponseEncoding encoding = ResponseEncoding.fromAccept(ctx.header("Accept"));
+        ctx.contentType(encoding.streamContentType());
+        ctx.status(HttpStatus.OK);
+
+        EventStreamWriter writer = new EventStreamWriter(ctx.res().getOutputStream(), encoding);
+        try {
+            SearchService.BatchOutcome outcome = searchService.searchBatch(
+                batch,
+                new SearchService.BatchListener() {
+                    @Override
+                    public void onResponse(int index, Models.SearchResponse response) {
+                        writer.write(Map.of("type", "response", "index", index, "data", response));
+                    }
+
+                    @Override
+                    public void onError(int index, String message) {
+                        writer.write(Map.of("type", "error", "index", index, "message", message));
+                    }
+                }
+            );
+            writer.write(Map.of(
+                "type", "done",
+                "ok", true,
+                "requests", outcome.requests(),
+                "failed", outcome.failed(),
+                "retrievals", outcome.retrievals(),
+                "sharedRetrievals", outcome.sharedRetrievals()
+            ));
+        } catch (Exception ex) {
+            logger.error("Batch search failed", ex);
+            writer.write(Map.of("type", "error", "message", ex.getMessage() == null ? "Unexpected server error" : ex.getMessage()));
+            writer.write(Map.of("type", "done", "ok", false));
         }
     }
 
@@ -117,6 +299,18 @@ public final class Main {
         return null;
     }
 
+    private static Integer firstNonNull(Integer first, Integer second) {
+        return first != null ? first : second;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = value.trim();
+        return normalized.equalsIgnoreCase("true") || normalized.equals("1");
+    }
+
     private static Integer parseInt(String value) {
         if (value == null || value.isBlank()) {
             return null;
@@ -127,14 +321,4 @@ public final class Main {
             return null;
         }
     }
-
-    private static void writeEvent(PrintWriter writer, Object payload) {
-        try {
-            writer.write(mapper.writeValueAsString(payload));
-            writer.write('\n');
-            writer.flush();
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
-    }
 }
@@ -14,6 +14,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
@@ -24,6 +25,14 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
@@ -36,6 +45,7 @@ public final class GoodMemClient {
     private static final Logger logger = LoggerFactory.getLogger(GoodMemClient.class);
     private static final String POST_PROCESSOR_FACTORY =
         "com.goodmem.retrieval.postprocess.ChatPostProcessorFactory";
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
 
     private final ObjectMapper mapper = new ObjectMapper();
     private final HttpClient httpClient;
@@ -52,6 +62,8 @@ public final class GoodMemClient {
     private final int overviewMaxResults;
     private final int overviewCandidateSize;
     private final Double overviewRelevanceThreshold;
+    private final Semaphore upstreamPermits;
+    private final RetrievalHedging hedging;
 
     public GoodMemClient(AppConfig config) {
         this.baseUrl = config.goodMemBaseUrl();
@@ -68,6 +80,13 @@ public final class GoodMemClient {
         this.overviewCandidateSize = config.overviewCandidateSize();
         this.overviewRelevanceThreshold = config.overviewRelevanceThreshold();
         this.httpClient = buildClient(config.goodMemInsecureSsl());
+        this.upstreamPermits = new Semaphore(Math.max(1, config.goodMemMaxConcurrency()), true);
+        this.hedging = new RetrievalHedging(
+            config.goodMemHedging(),
+            config.goodMemHedgeQuantile(),
+            config.goodMemHedgeBudget(),
+            config.goodMemHedgeMinDelay()
+        );
     }
 
     public Map<String, String> listSpaces() throws IOException, InterruptedException {
@@ -79,7 +98,13 @@ public final class GoodMemClient {
             .GET()
             .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response;
+        upstreamPermits.acquire();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } finally {
+            upstreamPermits.release();
+        }
         if (response.statusCode() != 200) {
             throw new IOException("GoodMem list spaces failed: " + response.statusCode());
         }
@@ -102,6 +127,17 @@ public final class GoodMemClient {
         String spaceId,
         int limit,
         String filter
+    ) throws IOException, InterruptedException {
+        return retrieve(query, spaceType, spaceId, limit, filter, DEFAULT_TIMEOUT);
+    }
+
+    public List<MemoryHit> retrieve(
+        String query,
+        SpaceType spaceType,
+        String spaceId,
+        int limit,
+        String filter,
+        Duration timeout
     ) throws IOException, InterruptedException {
         if (limit <= 0) {
             return List.of();
@@ -134,7 +170,7 @@ public final class GoodMemClient {
         }
 
         HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/memories:retrieve"))
-            .timeout(Duration.ofSeconds(60))
+            .timeout(timeout)
             .header("X-API-Key", apiKey)
             .header("Content-Type", "application/json")
             .header("Accept", "application/x-ndjson")
@@ -153,7 +189,19 @@ public final class GoodMemClient {
             rerankerApplied,
             maskId(rerankerId)
         );
-        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        upstreamPermits.acquire();
+        try {
+            return executeRetrieve(request, spaceType);
+        } finally {
+            upstreamPermits.release();
+        }
+    }
+
+    private List<MemoryHit> executeRetrieve(
+        HttpRequest request,
+        SpaceType spaceType
+    ) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = sendHedged(request, spaceType);
         if (response.statusCode() != 200) {
             String errorBody = readErrorBody(response.body());
             logger.warn(
@@ -231,14 +279,143 @@ public final class GoodMemClient {
         return hits;
     }
 
+    /**
+     * Send a retrieval. With hedging on, a request still unanswered after the space's hedge delay
+     * gets a duplicate, if the hedge budget and an upstream permit allow, and the first successful
+     * response wins; the other is cancelled or closed.
+     */
+    private HttpResponse<InputStream> sendHedged(
+        HttpRequest request,
+        SpaceType spaceType
+    ) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        Duration delay = hedging.startRequest(spaceType);
+        if (delay == null) {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            hedging.recordLatency(spaceType, System.nanoTime() - started);
+            return response;
+        }
+
+        CompletableFuture<HttpResponse<InputStream>> primary =
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<HttpResponse<InputStream>> hedge = null;
+        HttpResponse<InputStream> winner = null;
+        try {
+            try {
+                winner = primary.get(delay.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (hedging.tryHedge(spaceType) && upstreamPermits.tryAcquire()) {
+                    logger.info("goodmem.retrieve.hedge space={} delayMs={}", spaceType, delay.toMillis());
+                    hedge = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+                    hedge.whenComplete((response, error) -> upstreamPermits.release());
+                    winner = firstSuccessful(primary, hedge);
+                    if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.getNow(null) == winner) {
+                        hedging.recordWin(spaceType);
+                        logger.info("goodmem.retrieve.hedge.won space={}", spaceType);
+                    }
+                } else {
+                    winner = primary.get();
+                }
+            }
+            hedging.recordLatency(spaceType, System.nanoTime() - started);
+            return winner;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() instanceof CompletionException completion && completion.getCause() != null
+                ? completion.getCause()
+                : ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("GoodMem retrieve failed", cause);
+        } finally {
+            discardUnless(primary, winner);
+            if (hedge != null) {
+                discardUnless(hedge, winner);
+            }
+        }
+    }
+
+    private static HttpResponse<InputStream> firstSuccessful(
+        CompletableFuture<HttpResponse<InputStream>> primary,
+        CompletableFuture<HttpResponse<InputStream>> hedge
+    ) throws InterruptedException, ExecutionException {
+        CompletableFuture<HttpResponse<InputStream>> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<HttpResponse<InputStream>> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    first.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        return first.get();
+    }
+
+    /**
+     * Cancel an attempt that did not win, closing its body if it already answered.
+     */
+    private static void discardUnless(
+        CompletableFuture<HttpResponse<InputStream>> attempt,
+        HttpResponse<InputStream> winner
+    ) {
+        attempt.cancel(true);
+        attempt.thenAccept(response -> {
+            if (response != winner) {
+                try {
+                    response.body().close();
+                } catch (IOException ignored) {
+                    // Nothing to release beyond the connection itself.
+                }
+            }
+        });
+    }
+
+    public long hedgedRetrievals(SpaceType spaceType) {
+        return hedging.hedges(spaceType);
+    }
+
+    public long hedgeWins(SpaceType spaceType) {
+        return hedging.wins(spaceType);
+    }
+
+    /**
+     * Current hedge delay for a space, or {@code null} while it is not hedged.
+     */
+    public Duration hedgeDelay(SpaceType spaceType) {
+        return hedging.delay(spaceType);
+    }
+
+    /**
+     * Requests currently waiting for one of the {@code GOODMEM_MAX_CONCURRENCY} upstream permits.
+     */
+    public int permitWaiters() {
+        return upstreamPermits.getQueueLength();
+    }
+
     public boolean isOverviewEnabled() {
         return overviewLlmId != null && !overviewLlmId.isBlank();
     }
 
     public String generateOverview(String query, List<String> spaceIds) throws IOException, InterruptedException {
+        return generateOverview(query, spaceIds, null, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Generate the overview, passing every intermediate reply text to {@code onReply} as it is read.
+     * Each reply is the whole overview so far, not a delta.
+     */
+    public String generateOverview(
+        String query,
+        List<String> spaceIds,
+        Consumer<String> onReply,
+        Duration timeout
+    ) throws IOException, InterruptedException {
         if (!isOverviewEnabled() || spaceIds == null || spaceIds.isEmpty()) {
             return null;
         }
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
 
         ObjectNode payload = mapper.createObjectNode();
         payload.put("message", query);
@@ -295,13 +472,26 @@ public final class GoodMemClient {
         }
 
         HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/memories:retrieve"))
-            .timeout(Duration.ofSeconds(60))
+            .timeout(timeout)
             .header("X-API-Key", apiKey)
             .header("Content-Type", "application/json")
             .header("Accept", "application/x-ndjson")
             .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
             .build();
 
+        upstreamPermits.acquire();
+        try {
+            return executeOverview(request, onReply, deadlineNanos);
+        } finally {
+            upstreamPermits.release();
+        }
+    }
+
+    private String executeOverview(
+        HttpRequest request,
+        Consumer<String> onReply,
+        long deadlineNanos
+    ) throws IOException, InterruptedException {
         HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
         if (response.statusCode() != 200) {
             String errorBody = readErrorBody(response.body());
@@ -310,6 +500,7 @@ public final class GoodMemClient {
         }
 
         String overview = null;
+        CompletableFuture<Void> expiry = closeAtDeadline(response.body(), deadlineNanos);
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -322,6 +513,9 @@ public final class GoodMemClient {
                     String text = abstractReply.path("text").asText(null);
                     if (text != null && !text.isBlank()) {
                         overview = text.trim();
+                        if (onReply != null) {
+                            onReply.accept(overview);
+                        }
                     }
                 }
                 if (overview == null) {
@@ -348,12 +542,37 @@ public final class GoodMemClient {
                     }
                 }
             }
+        } catch (IOException ex) {
+            if (expiry.isDone() && !expiry.isCancelled()) {
+                throw new HttpTimeoutException("GoodMem overview stream exceeded its deadline");
+            }
+            throw ex;
+        } finally {
+            expiry.cancel(false);
         }
 
         logger.info("goodmem.overview.http.done status={} summary={}", response.statusCode(), abbreviate(overview, 700));
         return overview;
     }
 
+    /**
+     * Close {@code body} once {@code deadlineNanos} passes. {@link HttpRequest#timeout} only bounds the
+     * wait for the response headers, so without this a slow stream could outlive the caller's budget.
+     * Cancel the returned future once the body has been read.
+     */
+    private static CompletableFuture<Void> closeAtDeadline(InputStream body, long deadlineNanos) {
+        CompletableFuture<Void> expiry = new CompletableFuture<>();
+        expiry.completeOnTimeout(null, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+            .thenRun(() -> {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // The reader sees the stream as closed either way.
+                }
+            });
+        return expiry;
+    }
+
     private boolean shouldApplyReranker(String filter) {
         return rerankerId != null
             && !rerankerId.isBlank()
@@ -0,0 +1,117 @@
+package com.quran.omni.goodmem;
+
+import com.quran.omni.SpaceType;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a slow retrieval gets a duplicate request. The delay is a recent latency quantile
+ * (p95 by default) of the retrieval's own space, so only its tail is hedged; a token budget caps
+ * duplicates at a fixed share of primary requests across all spaces.
+ */
+final class RetrievalHedging {
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 32;
+    private static final int RECOMPUTE_EVERY = 16;
+    private static final double MAX_TOKENS = 10;
+
+    private final boolean enabled;
+    private final double quantile;
+    private final double budget;
+    private final long minDelayNanos;
+    private final Map<SpaceType, SpaceLatency> spaces = new EnumMap<>(SpaceType.class);
+    private double tokens;
+
+    RetrievalHedging(boolean enabled, double quantile, double budget, Duration minDelay) {
+        this.enabled = enabled && budget > 0;
+        this.quantile = Math.min(0.999, Math.max(0.5, quantile));
+        this.budget = budget;
+        this.minDelayNanos = minDelay.toNanos();
+        for (SpaceType spaceType : SpaceType.values()) {
+            spaces.put(spaceType, new SpaceLatency());
+        }
+    }
+
+    /**
+     * Count a primary request toward the hedge budget and return how long to wait for it before
+     * hedging, or {@code null} when it must not be hedged (disabled, or too few samples yet).
+     */
+    Duration startRequest(SpaceType spaceType) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + budget);
+        }
+        return delay(spaceType);
+    }
+
+    /**
+     * Spend one budget token on a duplicate request, if one is available.
+     */
+    boolean tryHedge(SpaceType spaceType) {
+        synchronized (this) {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        spaces.get(spaceType).hedges.increment();
+        return true;
+    }
+
+    void recordLatency(SpaceType spaceType, long nanos) {
+        spaces.get(spaceType).record(nanos);
+    }
+
+    void recordWin(SpaceType spaceType) {
+        spaces.get(spaceType).wins.increment();
+    }
+
+    long hedges(SpaceType spaceType) {
+        return spaces.get(spaceType).hedges.sum();
+    }
+
+    long wins(SpaceType spaceType) {
+        return spaces.get(spaceType).wins.sum();
+    }
+
+    /**
+     * Current hedge delay for the space, or {@code null} while hedging is off for it.
+     */
+    Duration delay(SpaceType spaceType) {
+        if (!enabled) {
+            return null;
+        }
+        long delay = spaces.get(spaceType).delayNanos();
+        return delay < 0 ? null : Duration.ofNanos(Math.max(minDelayNanos, delay));
+    }
+
+    /**
+     * The last {@code WINDOW} latencies of one space; the quantile is refreshed every few samples.
+     */
+    private final class SpaceLatency {
+        private final long[] samples = new long[WINDOW];
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private long recorded;
+        private long delayNanos = -1;
+
+        synchronized void record(long nanos) {
+            samples[(int) (recorded % WINDOW)] = nanos;
+            recorded += 1;
+            if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0) {
+                long[] window = Arrays.copyOf(samples, (int) Math.min(recorded, WINDOW));
+                Arrays.sort(window);
+                delayNanos = window[(int) Math.min(window.length - 1, Math.ceil(quantile * window.length) - 1)];
+            }
+        }
+
+        synchronized long delayNanos() {
+            return delayNanos;
+        }
+    }
+}
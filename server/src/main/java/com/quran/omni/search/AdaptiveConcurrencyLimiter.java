@@ -0,0 +1,118 @@
+package com.quran.omni.search;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gradient-style concurrency limit for agent runs.
+ * The limit grows while observed latency stays near its long-term baseline and shrinks in proportion
+ * when latency rises above it (e.g. during a GoodMem brownout), so excess requests are rejected
+ * quickly instead of queueing until they time out. Failed runs cut the limit multiplicatively;
+ * cancelled runs, whose client went away, say nothing about upstream health and only free their slot.
+ */
+final class AdaptiveConcurrencyLimiter {
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW_WEIGHT = 0.05;
+    private static final double FAILURE_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * Reserve a slot, or return {@code null} when the current limit is reached.
+     */
+    synchronized Permit tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        inFlight += 1;
+        return new Permit(System.nanoTime());
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    long rejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Seconds a rejected client should wait before retrying: roughly one typical search duration.
+     */
+    synchronized int retryAfterSeconds() {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds((long) longRttNanos);
+        return (int) Math.max(1, Math.min(seconds + 1, 30));
+    }
+
+    private synchronized void cancel() {
+        inFlight -= 1;
+    }
+
+    private synchronized void release(long startNanos, boolean succeeded) {
+        inFlight -= 1;
+        if (!succeeded) {
+            limit = Math.max(minLimit, limit * FAILURE_BACKOFF);
+            return;
+        }
+        double sampleRtt = Math.max(1, System.nanoTime() - startNanos);
+        if (longRttNanos == 0) {
+            longRttNanos = sampleRtt;
+        } else {
+            longRttNanos = longRttNanos * (1 - LONG_WINDOW_WEIGHT) + sampleRtt * LONG_WINDOW_WEIGHT;
+        }
+        if (inFlight * 2 < limit) {
+            // Too little traffic to tell whether a higher limit would hurt latency.
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / sampleRtt));
+        double queueAllowance = Math.sqrt(limit);
+        double target = limit * gradient + queueAllowance;
+        double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    final class Permit {
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void release(boolean succeeded) {
+            if (released) {
+                return;
+            }
+            released = true;
+            AdaptiveConcurrencyLimiter.this.release(startNanos, succeeded);
+        }
+
+        /**
+         * Free the slot of a cancelled run without a latency sample or a backoff.
+         */
+        void cancel() {
+            if (released) {
+                return;
+            }
+            released = true;
+            AdaptiveConcurrencyLimiter.this.cancel();
+        }
+    }
+}
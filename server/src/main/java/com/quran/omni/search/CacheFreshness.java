@@ -0,0 +1,57 @@
+package com.quran.omni.search;
+
+import java.time.Duration;
+
+/**
+ * Decides when a cached search response is refreshed. Past the soft TTL an entry is stale: it is
+ * still served, and one background search replaces it. A hot entry, one hit at least
+ * {@code refreshAheadHits} times, is refreshed ahead once it is within the last
+ * {@code refreshAheadShare} of its soft TTL, so popular queries rarely turn stale. The hard TTL,
+ * applied by the cache itself, bounds how long any entry is served.
+ */
+final class CacheFreshness {
+    private final long softTtlNanos;
+    private final long refreshAheadNanos;
+    private final long refreshAheadHits;
+
+    /**
+     * Whether an entry is served as is, served and refreshed ahead of time, or served stale and refreshed.
+     */
+    enum State {
+        FRESH,
+        REFRESH_AHEAD,
+        STALE
+    }
+
+    CacheFreshness(Duration softTtl, double refreshAheadShare, int refreshAheadHits) {
+        this.softTtlNanos = softTtl.toNanos();
+        this.refreshAheadNanos = (long) (softTtlNanos * (1 - Math.min(1, Math.max(0, refreshAheadShare))));
+        this.refreshAheadHits = refreshAheadHits;
+    }
+
+    boolean enabled() {
+        return softTtlNanos > 0;
+    }
+
+    /**
+     * Classify an entry on a hit; the hit itself is counted first.
+     */
+    State onHit(CachedSearchResponse entry) {
+        long hits = entry.recordHit();
+        if (!enabled()) {
+            return State.FRESH;
+        }
+        long age = entry.ageNanos();
+        if (age >= softTtlNanos) {
+            return State.STALE;
+        }
+        if (refreshAheadHits > 0 && hits >= refreshAheadHits && age >= refreshAheadNanos) {
+            return State.REFRESH_AHEAD;
+        }
+        return State.FRESH;
+    }
+
+    boolean isStale(CachedSearchResponse entry) {
+        return enabled() && entry.ageNanos() >= softTtlNanos;
+    }
+}
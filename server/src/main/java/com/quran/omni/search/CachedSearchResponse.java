@@ -0,0 +1,141 @@
+package com.quran.omni.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A search response together with its serialized JSON, an optional gzip copy, and a strong ETag.
+ * Cache hits are served from the stored bytes without touching Jackson again; Smile and CBOR
+ * bodies are encoded the first time a client asks for them and kept alongside the JSON. The entry
+ * also tracks its age and cache hits, which decide when it is refreshed.
+ */
+public final class CachedSearchResponse {
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final Models.SearchResponse response;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final Map<ResponseEncoding, byte[]> binaryBodies = new ConcurrentHashMap<>();
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder hits = new LongAdder();
+
+    private CachedSearchResponse(Models.SearchResponse response, byte[] json, byte[] gzip, String etag) {
+        this.response = response;
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+    }
+
+    static CachedSearchResponse of(ObjectWriter writer, Models.SearchResponse response, boolean gzipEnabled) {
+        byte[] json = encode(writer, response);
+        byte[] gzip = gzipEnabled && json.length >= GZIP_MIN_BYTES ? gzip(json) : null;
+        String etag = "\"" + Hashing.sha256().hashBytes(json).toString().substring(0, 32) + "\"";
+        return new CachedSearchResponse(response, json, gzip, etag);
+    }
+
+    public Models.SearchResponse response() {
+        return response;
+    }
+
+    long ageNanos() {
+        return System.nanoTime() - createdNanos;
+    }
+
+    /**
+     * Count a cache hit and return the hits so far, this one included.
+     */
+    long recordHit() {
+        hits.increment();
+        return hits.sum();
+    }
+
+    public byte[] json() {
+        return json;
+    }
+
+    /**
+     * Gzip copy of the JSON body, or {@code null} when it is too small or compression is disabled.
+     */
+    public byte[] gzip() {
+        return gzip;
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    public byte[] body(ResponseEncoding encoding) {
+        if (!encoding.isBinary()) {
+            return json;
+        }
+        return binaryBodies.computeIfAbsent(encoding, key -> encode(key.responseWriter(), response));
+    }
+
+    /**
+     * Whether a JSON request with this {@code Accept-Encoding} header is served the gzip copy.
+     */
+    public boolean servesGzip(ResponseEncoding encoding, String acceptEncoding) {
+        return !encoding.isBinary() && gzip != null && ResponseEncoding.acceptsGzip(acceptEncoding);
+    }
+
+    /**
+     * ETag of one representation. Binary encodings and the gzip copy get a suffix, since a strong
+     * ETag must not be shared across encodings or content codings.
+     */
+    public String etag(ResponseEncoding encoding, boolean gzipped) {
+        String suffix = encoding.isBinary() ? encoding.name().toLowerCase(Locale.ROOT) : gzipped ? "gzip" : null;
+        if (suffix == null) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    /**
+     * Whether {@code If-None-Match} lists the representation's ETag, using the weak comparison the
+     * header calls for: a {@code W/} prefix, added by proxies that re-encode, is ignored.
+     */
+    public boolean matches(String ifNoneMatch, ResponseEncoding encoding, boolean gzipped) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String current = etag(encoding, gzipped);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] encode(ObjectWriter writer, Models.SearchResponse response) {
+        try {
+            return writer.writeValueAsBytes(response);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return output.toByteArray();
+    }
+}
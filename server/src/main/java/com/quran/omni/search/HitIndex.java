@@ -0,0 +1,97 @@
+package com.quran.omni.search;
+
+import com.quran.omni.SpaceType;
+import com.quran.omni.goodmem.GoodMemClient.MemoryHit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The best-scoring copy of every hit gathered by one search, kept in score order as hits arrive.
+ * Hits are keyed per space by memory id, so merging needs no composite key string, and merging or
+ * reading the top {@code n} costs O(log n) per hit instead of a full sort per step. Ties keep the
+ * order in which hits were first seen. Not thread-safe: one search thread owns it.
+ */
+final class HitIndex {
+    private static final Comparator<Entry> ORDER = Comparator
+        .comparingDouble((Entry entry) -> entry.hit.score())
+        .reversed()
+        .thenComparingLong(entry -> entry.sequence);
+
+    private final Map<SpaceType, Map<String, Entry>> bySpace = new EnumMap<>(SpaceType.class);
+    private final TreeSet<Entry> ranked = new TreeSet<>(ORDER);
+    private long nextSequence;
+
+    /**
+     * Add hits, keeping the higher score when a memory is already present.
+     *
+     * @return how many hits were not present before
+     */
+    int merge(List<MemoryHit> hits) {
+        int added = 0;
+        for (MemoryHit hit : hits) {
+            Map<String, Entry> space = bySpace.computeIfAbsent(hit.spaceType(), type -> new HashMap<>());
+            Entry existing = space.get(hit.memoryId());
+            if (existing == null) {
+                Entry entry = new Entry(hit, nextSequence++);
+                space.put(hit.memoryId(), entry);
+                ranked.add(entry);
+                added += 1;
+                continue;
+            }
+            if (hit.score() > existing.hit.score()) {
+                ranked.remove(existing);
+                existing.hit = hit;
+                ranked.add(existing);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * The best {@code limit} hits, highest score first.
+     */
+    List<MemoryHit> top(int limit) {
+        List<MemoryHit> top = new ArrayList<>(Math.min(limit, ranked.size()));
+        Iterator<Entry> entries = ranked.iterator();
+        while (top.size() < limit && entries.hasNext()) {
+            top.add(entries.next().hit);
+        }
+        return top;
+    }
+
+    /**
+     * Every hit, highest score first.
+     */
+    List<MemoryHit> sorted() {
+        return top(ranked.size());
+    }
+
+    int count(SpaceType spaceType) {
+        Map<String, Entry> space = bySpace.get(spaceType);
+        return space == null ? 0 : space.size();
+    }
+
+    int size() {
+        return ranked.size();
+    }
+
+    boolean isEmpty() {
+        return ranked.isEmpty();
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private MemoryHit hit;
+
+        private Entry(MemoryHit hit, long sequence) {
+            this.hit = hit;
+            this.sequence = sequence;
+        }
+    }
+}
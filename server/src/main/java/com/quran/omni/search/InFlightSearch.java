@@ -0,0 +1,263 @@
+package com.quran.omni.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A search that is currently running for one cache key.
+ * Identical requests attach to it instead of running their own agent loop; every event the
+ * leader emits is recorded so late joiners see the same status and tool-call history.
+ * When every caller that joined has left before the result is ready, the run is cancelled.
+ * <p>
+ * Each caller has its own queue, drained off the publishing thread, so a slow client never blocks
+ * the agent loop or the other callers. The overview is kept in the history as one replace event
+ * rather than every streamed token.
+ */
+final class InFlightSearch implements SearchService.SearchEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(InFlightSearch.class);
+
+    private final String traceId;
+    private final CompletableFuture<CachedSearchResponse> result = new CompletableFuture<>();
+    private static final Consumer<SearchService.SearchEventListener> OVERVIEW = listener -> {
+    };
+
+    private final List<Consumer<SearchService.SearchEventListener>> history = new ArrayList<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final StringBuilder overview = new StringBuilder();
+    private boolean overviewStarted;
+    private final SearchCancellation run = new SearchCancellation();
+    private int interested;
+
+    InFlightSearch(String traceId) {
+        this.traceId = traceId;
+    }
+
+    String traceId() {
+        return traceId;
+    }
+
+    /**
+     * Cancellation of the shared run; fires once no caller is interested in the result any more.
+     */
+    SearchCancellation run() {
+        return run;
+    }
+
+    /**
+     * Attach a caller that wants the result. Returns {@code false} if the run was already cancelled.
+     */
+    synchronized boolean join(SearchService.SearchEventListener listener) {
+        if (run.isCancelled()) {
+            return false;
+        }
+        interested++;
+        attach(listener);
+        return true;
+    }
+
+    /**
+     * Detach a caller that joined, first delivering on its thread whatever is still queued for it;
+     * the run is cancelled when the last one leaves before it completes.
+     */
+    void leave(SearchService.SearchEventListener listener) {
+        Subscriber subscriber = detach(listener);
+        if (subscriber != null) {
+            subscriber.drain();
+        }
+        release();
+    }
+
+    /**
+     * Detach a caller that has gone away, dropping any events still queued for it.
+     */
+    void abandon(SearchService.SearchEventListener listener) {
+        Subscriber subscriber = detach(listener);
+        if (subscriber != null) {
+            subscriber.pending.clear();
+        }
+        release();
+    }
+
+    private void release() {
+        boolean abandoned;
+        synchronized (this) {
+            interested--;
+            abandoned = interested == 0 && !result.isDone();
+        }
+        if (abandoned) {
+            logger.info("[{}] search.cancel reason=abandoned", traceId);
+            run.cancel();
+        }
+    }
+
+    /**
+     * Register a listener, queueing everything emitted so far before any live events.
+     */
+    private synchronized void attach(SearchService.SearchEventListener listener) {
+        Subscriber subscriber = new Subscriber(listener);
+        for (Consumer<SearchService.SearchEventListener> event : history) {
+            if (event == OVERVIEW) {
+                Models.OverviewDelta replace = new Models.OverviewDelta(overview.toString(), true);
+                subscriber.pending.add(target -> target.onOverviewDelta(replace));
+            } else {
+                subscriber.pending.add(event);
+            }
+        }
+        subscribers.add(subscriber);
+        subscriber.schedule();
+    }
+
+    private synchronized Subscriber detach(SearchService.SearchEventListener listener) {
+        for (int i = 0; i < subscribers.size(); i++) {
+            if (subscribers.get(i).listener == listener) {
+                return subscribers.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the result, giving up early if the caller's own search is cancelled.
+     */
+    CachedSearchResponse await(SearchCancellation caller) {
+        CompletableFuture<CachedSearchResponse> waiting = result.copy();
+        Runnable unregister = caller.onCancel(
+            () -> waiting.completeExceptionally(new SearchCancelledException("Search cancelled"))
+        );
+        try {
+            return waiting.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        } finally {
+            unregister.run();
+        }
+    }
+
+    void complete(CachedSearchResponse response) {
+        result.complete(response);
+    }
+
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+    }
+
+    @Override
+    public void onStatus(String message) {
+        publish(listener -> listener.onStatus(message));
+    }
+
+    @Override
+    public void onToolCall(Models.AgentToolCall toolCall) {
+        publish(listener -> listener.onToolCall(toolCall));
+    }
+
+    @Override
+    public void onPartialResults(Models.PartialResults partialResults) {
+        publish(listener -> listener.onPartialResults(partialResults));
+    }
+
+    @Override
+    public void onOverviewDelta(Models.OverviewDelta overviewDelta) {
+        List<Subscriber> targets;
+        synchronized (this) {
+            if (overviewDelta.reset()) {
+                overview.setLength(0);
+            }
+            if (overviewDelta.text() != null) {
+                overview.append(overviewDelta.text());
+            }
+            if (!overviewStarted) {
+                overviewStarted = true;
+                history.add(OVERVIEW);
+            }
+            targets = enqueue(listener -> listener.onOverviewDelta(overviewDelta));
+        }
+        targets.forEach(Subscriber::schedule);
+    }
+
+    /**
+     * Whether any caller attached now consumes incremental events; one that joins later still gets
+     * the final overview as a replace event.
+     */
+    @Override
+    public synchronized boolean streaming() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener.streaming()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void publish(Consumer<SearchService.SearchEventListener> event) {
+        List<Subscriber> targets;
+        synchronized (this) {
+            history.add(event);
+            targets = enqueue(event);
+        }
+        targets.forEach(Subscriber::schedule);
+    }
+
+    /**
+     * Queue a live event for every current subscriber; callers hold the monitor and schedule
+     * delivery after releasing it.
+     */
+    private List<Subscriber> enqueue(Consumer<SearchService.SearchEventListener> event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.pending.add(event);
+        }
+        return List.copyOf(subscribers);
+    }
+
+    /**
+     * One caller's pending events, delivered in order by at most one thread at a time: a virtual
+     * thread started when events arrive, or the caller itself when it leaves.
+     */
+    private final class Subscriber {
+        private final SearchService.SearchEventListener listener;
+        private final ConcurrentLinkedQueue<Consumer<SearchService.SearchEventListener>> pending = new ConcurrentLinkedQueue<>();
+        private final ReentrantLock delivering = new ReentrantLock();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(SearchService.SearchEventListener listener) {
+            this.listener = listener;
+        }
+
+        void schedule() {
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("coalesce-" + traceId).start(() -> {
+                    drain();
+                    scheduled.set(false);
+                    schedule();
+                });
+            }
+        }
+
+        void drain() {
+            delivering.lock();
+            try {
+                Consumer<SearchService.SearchEventListener> event;
+                while ((event = pending.poll()) != null) {
+                    try {
+                        event.accept(listener);
+                    } catch (RuntimeException ex) {
+                        logger.warn("[{}] search.coalesce.listener_failed", traceId, ex);
+                    }
+                }
+            } finally {
+                delivering.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.quran.omni.search;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets: every power of two is split into
+ * 16 linear sub-buckets, so any recorded value is known to within about 6% from 1µs up to ~19h.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 32;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_SHIFT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumMicros = new LongAdder();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketIndex(micros));
+        sumMicros.add(micros);
+    }
+
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sumMicros.sum());
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Point-in-time copy of the bucket counts. Buckets are read one by one without locking, so a
+     * snapshot taken during recording may be off by the observations still in flight.
+     */
+    record Snapshot(long[] counts, long count, long sumMicros) {
+        double sumSeconds() {
+            return sumMicros / 1_000_000.0;
+        }
+
+        /**
+         * Observations at or below {@code seconds}, using each bucket's upper bound.
+         */
+        long countAtOrBelow(double seconds) {
+            long limitMicros = (long) (seconds * 1_000_000);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (bucketUpperBoundMicros(i) > limitMicros) {
+                    break;
+                }
+                cumulative += counts[i];
+            }
+            return cumulative;
+        }
+
+        double quantileSeconds(double quantile) {
+            if (count == 0) {
+                return 0.0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return bucketUpperBoundMicros(i) / 1_000_000.0;
+                }
+            }
+            return bucketUpperBoundMicros(counts.length - 1) / 1_000_000.0;
+        }
+    }
+}
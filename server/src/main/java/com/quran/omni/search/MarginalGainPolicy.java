@@ -0,0 +1,148 @@
+package com.quran.omni.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.quran.omni.goodmem.GoodMemClient.MemoryHit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides, from the scores gathered so far, whether another agent step can still change what the
+ * response shows. Hits are ranked the way {@link SearchResultAssembler} groups them: hits tied to an
+ * ayah count once per ayah key at their best score, everything else is a direct hit. After each step
+ * the top-{@code limit} of both lists is compared with the previous step, and the gain is the larger
+ * of the share of top results that are new and the share of top-result score the step added. The
+ * last step's gain stands in for the next step's expected gain, since later rewrites rarely beat earlier
+ * ones; once it falls below {@code minGain} the loop can stop. One instance serves one search.
+ */
+final class MarginalGainPolicy {
+    private final double minGain;
+    private final int minSteps;
+    private final int limit;
+    private Map<String, Double> previousScores = Map.of();
+    private double previousAyahCutoff;
+    private double previousDirectCutoff;
+    private int steps;
+
+    MarginalGainPolicy(double minGain, int minSteps, int limit) {
+        this.minGain = minGain;
+        this.minSteps = Math.max(1, minSteps);
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Record the state after one retrieval step and say whether the next one is worth running.
+     */
+    Verdict evaluate(Collection<MemoryHit> bestHits) {
+        steps += 1;
+        Map<String, Double> ayahScores = new HashMap<>();
+        Map<String, Double> directScores = new HashMap<>();
+        for (MemoryHit hit : bestHits) {
+            List<String> ayahKeys = ayahKeys(hit);
+            if (ayahKeys.isEmpty()) {
+                if (isDirect(hit)) {
+                    directScores.merge(hit.spaceType().apiName() + ":" + hit.memoryId(), hit.score(), Math::max);
+                }
+                continue;
+            }
+            for (String ayahKey : ayahKeys) {
+                ayahScores.merge(ayahKey, hit.score(), Math::max);
+            }
+        }
+
+        List<Map.Entry<String, Double>> topAyahs = top(ayahScores);
+        List<Map.Entry<String, Double>> topDirect = top(directScores);
+        int changed = 0;
+        double added = 0;
+        double mass = 0;
+        for (Map.Entry<String, Double> entry : topAyahs) {
+            Double before = previousScores.get("ayah:" + entry.getKey());
+            changed += before == null ? 1 : 0;
+            added += Math.max(0, entry.getValue() - Math.max(before == null ? 0 : before, previousAyahCutoff));
+            mass += Math.abs(entry.getValue());
+        }
+        for (Map.Entry<String, Double> entry : topDirect) {
+            Double before = previousScores.get("direct:" + entry.getKey());
+            changed += before == null ? 1 : 0;
+            added += Math.max(0, entry.getValue() - Math.max(before == null ? 0 : before, previousDirectCutoff));
+            mass += Math.abs(entry.getValue());
+        }
+        int shown = topAyahs.size() + topDirect.size();
+        double churn = shown == 0 ? 1 : (double) changed / shown;
+        double scoreGain = mass == 0 ? (shown == 0 ? 1 : 0) : added / mass;
+        double gain = Math.max(churn, scoreGain);
+
+        Map<String, Double> scores = new HashMap<>();
+        topAyahs.forEach(entry -> scores.put("ayah:" + entry.getKey(), entry.getValue()));
+        topDirect.forEach(entry -> scores.put("direct:" + entry.getKey(), entry.getValue()));
+        previousScores = scores;
+        previousAyahCutoff = cutoff(topAyahs);
+        previousDirectCutoff = cutoff(topDirect);
+
+        boolean full = topAyahs.size() >= limit || topDirect.size() >= limit;
+        boolean stop = steps >= minSteps && full && gain < minGain;
+        String reason = stop
+            ? String.format(
+                Locale.ROOT,
+                "Stopped early: last step changed %.0f%% of the top %d results and added %.0f%% of their score (threshold %.0f%%)",
+                churn * 100,
+                limit,
+                scoreGain * 100,
+                minGain * 100
+            )
+            : null;
+        return new Verdict(stop, churn, scoreGain, reason);
+    }
+
+    private List<Map.Entry<String, Double>> top(Map<String, Double> scores) {
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(scores.entrySet());
+        entries.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * Score a hit must beat to enter a full list; an unfilled list admits anything.
+     */
+    private double cutoff(List<Map.Entry<String, Double>> top) {
+        return top.size() < limit ? 0 : top.get(top.size() - 1).getValue();
+    }
+
+    private static List<String> ayahKeys(MemoryHit hit) {
+        JsonNode meta = hit.metadata();
+        if (meta == null) {
+            return List.of();
+        }
+        return switch (hit.spaceType()) {
+            case QURAN, TRANSLATION, TAFSIR -> {
+                JsonNode ayahKey = meta.get("ayah_key");
+                yield ayahKey == null || ayahKey.asText().isBlank() ? List.of() : List.of(ayahKey.asText());
+            }
+            case POST -> {
+                List<String> keys = new ArrayList<>();
+                JsonNode ayahKeys = meta.get("ayah_keys");
+                if (ayahKeys != null && ayahKeys.isArray()) {
+                    ayahKeys.forEach(node -> {
+                        if (!node.asText().isBlank()) {
+                            keys.add(node.asText());
+                        }
+                    });
+                }
+                yield keys;
+            }
+            case COURSE, ARTICLE -> List.of();
+        };
+    }
+
+    private static boolean isDirect(MemoryHit hit) {
+        return switch (hit.spaceType()) {
+            case POST, COURSE, ARTICLE -> true;
+            case QURAN, TRANSLATION, TAFSIR -> false;
+        };
+    }
+
+    record Verdict(boolean stop, double churn, double scoreGain, String reason) {
+    }
+}
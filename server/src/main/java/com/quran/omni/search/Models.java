@@ -11,7 +11,16 @@ public final class Models {
         List<String> spaces,
         String language,
         Integer limit,
-        Integer maxSteps
+        Integer maxSteps,
+        Integer timeoutMs,
+        Boolean timings,
+        String planner,
+        Boolean fast
+    ) {}
+
+    public record BatchSearchRequest(
+        List<SearchRequest> requests,
+        Integer parallelism
     ) {}
 
     public record SearchResponse(
@@ -24,6 +33,17 @@ public final class Models {
         AgentMetadata agent
     ) {}
 
+    public record PartialResults(
+        int step,
+        List<ConsolidatedAyahResult> ayahResults,
+        int totalAyahResults
+    ) {}
+
+    public record OverviewDelta(
+        String text,
+        boolean reset
+    ) {}
+
     public record AiOverview(
         String text
     ) {}
@@ -53,9 +73,27 @@ public final class Models {
     public record AgentMetadata(
         String mode,
         String plannerModel,
+        String plannerMode,
         int steps,
         boolean usedLlmPlanner,
-        boolean usedHeuristicFallback
+        boolean usedHeuristicFallback,
+        boolean deadlineTruncated,
+        boolean incomplete,
+        boolean approximateCacheHit,
+        Timings timings
+    ) {}
+
+    public record Timings(
+        boolean cached,
+        double totalMs,
+        List<StageTiming> stages
+    ) {}
+
+    public record StageTiming(
+        String stage,
+        String variant,
+        Integer step,
+        double durationMs
     ) {}
 
     public record QuranResult(
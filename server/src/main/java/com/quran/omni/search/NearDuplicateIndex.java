@@ -0,0 +1,213 @@
+package com.quran.omni.search;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Finds a cached query that asks nearly the same thing as a new one, such as "what does the quran
+ * say about patience" and "quran about patience". A query is reduced to the set of its canonical
+ * words minus filler, and indexed by a MinHash signature split into LSH bands: queries sharing any
+ * band are candidates, and a candidate matches when the Jaccard similarity of the two word sets
+ * reaches the threshold. Word order is ignored except for numbers: the numbers of a query, such as
+ * the surah and ayah of "surah 2 verse 3", must appear in both queries in the same order, so a
+ * reference is never answered with another verse's results. Entries are only compared within the
+ * same scope, the cache key without its query, so spaces, language, limit and modes always match
+ * exactly.
+ *
+ * @param <K> the cache key type, also used for scopes
+ */
+final class NearDuplicateIndex<K> {
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final long[] SEEDS = seeds(BANDS * ROWS);
+    private static final List<String> FILLER_WORDS = List.of(
+        "a", "an", "the", "of", "in", "on", "about", "for", "to", "and", "is", "are", "was", "were",
+        "what", "does", "do", "did", "say", "says", "said", "tell", "me", "show", "find", "give",
+        "please", "can", "you", "i", "want", "know", "regarding", "concerning", "according", "quran",
+        "koran", "qur'an", "ما", "ماذا", "عن", "في", "من", "هل", "يقول", "القرآن"
+    );
+
+    private final double threshold;
+    private final Set<String> filler;
+    private final Map<K, Entry<K>> entries = new ConcurrentHashMap<>();
+    private final Map<Bucket<K>, Set<K>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param canonicalizer the canonicalizer of the indexed queries, applied to the filler words too
+     */
+    NearDuplicateIndex(double threshold, QueryCanonicalizer canonicalizer) {
+        this.threshold = threshold;
+        this.filler = FILLER_WORDS.stream().map(canonicalizer::canonicalize).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * A cached query close enough to the one looked up, and how close it was.
+     */
+    record Match<K>(K key, double similarity) {
+    }
+
+    /**
+     * Index {@code key}, whose canonical query is {@code canonicalQuery}. Queries with no words left
+     * after dropping filler are not indexed.
+     */
+    void put(K key, K scope, String canonicalQuery) {
+        Set<String> words = contentWords(canonicalQuery);
+        if (words.isEmpty()) {
+            return;
+        }
+        Entry<K> entry = new Entry<>(scope, words, numbers(canonicalQuery), bands(words));
+        Entry<K> previous = entries.put(key, entry);
+        if (previous != null) {
+            unlink(key, previous);
+        }
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(new Bucket<>(scope, band, entry.bands()[band]), ignored -> ConcurrentHashMap.newKeySet())
+                .add(key);
+        }
+    }
+
+    void remove(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry != null) {
+            unlink(key, entry);
+        }
+    }
+
+    /**
+     * The most similar indexed query in {@code scope}, or {@code null} when none reaches the threshold.
+     * An exact word-set match wins outright.
+     */
+    Match<K> find(K scope, String canonicalQuery) {
+        Set<String> words = contentWords(canonicalQuery);
+        if (words.isEmpty()) {
+            return null;
+        }
+        List<String> numbers = numbers(canonicalQuery);
+        long[] bands = bands(words);
+        Set<K> candidates = new LinkedHashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<K> bucket = buckets.get(new Bucket<>(scope, band, bands[band]));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Match<K> best = null;
+        for (K candidate : candidates) {
+            Entry<K> entry = entries.get(candidate);
+            if (entry == null || !entry.scope().equals(scope) || !entry.numbers().equals(numbers)) {
+                continue;
+            }
+            double similarity = jaccard(words, entry.words());
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match<>(candidate, similarity);
+                if (similarity == 1) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Set<String> contentWords(String canonicalQuery) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : canonicalQuery.split(" ")) {
+            if (!word.isEmpty() && !filler.contains(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The words of the query that contain a digit, in query order.
+     */
+    private static List<String> numbers(String canonicalQuery) {
+        List<String> numbers = new ArrayList<>();
+        for (String word : canonicalQuery.split(" ")) {
+            if (word.chars().anyMatch(Character::isDigit)) {
+                numbers.add(word);
+            }
+        }
+        return numbers;
+    }
+
+    private void unlink(K key, Entry<K> entry) {
+        for (int band = 0; band < BANDS; band++) {
+            buckets.computeIfPresent(new Bucket<>(entry.scope(), band, entry.bands()[band]), (bucket, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * MinHash over the word set with {@code BANDS * ROWS} hash functions, folded into one hash per band.
+     */
+    private static long[] bands(Set<String> words) {
+        long[] minimums = new long[SEEDS.length];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        for (String word : words) {
+            long base = Hashing.murmur3_128().hashString(word, StandardCharsets.UTF_8).asLong();
+            for (int i = 0; i < SEEDS.length; i++) {
+                minimums[i] = Math.min(minimums[i], mix(base ^ SEEDS[i]));
+            }
+        }
+        long[] bands = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + minimums[band * ROWS + row]);
+            }
+            bands[band] = hash;
+        }
+        return bands;
+    }
+
+    private static double jaccard(Set<String> left, Set<String> right) {
+        int shared = 0;
+        for (String word : left) {
+            if (right.contains(word)) {
+                shared += 1;
+            }
+        }
+        return (double) shared / (left.size() + right.size() - shared);
+    }
+
+    private static long[] seeds(int count) {
+        long[] seeds = new long[count];
+        long state = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < count; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(state);
+        }
+        return seeds;
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Entry<K>(K scope, Set<String> words, List<String> numbers, long[] bands) {
+    }
+
+    private record Bucket<K>(K scope, int band, long hash) {
+    }
+}
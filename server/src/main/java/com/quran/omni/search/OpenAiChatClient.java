@@ -5,28 +5,48 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quran.omni.AppConfig;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class OpenAiChatClient {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
     private final ObjectMapper mapper = new ObjectMapper();
     private final HttpClient httpClient = HttpClient.newBuilder()
         .connectTimeout(Duration.ofSeconds(15))
         .build();
     private final String baseUrl;
     private final String apiKey;
+    private final Semaphore upstreamPermits;
 
     public OpenAiChatClient(AppConfig config) {
         this.baseUrl = trimTrailingSlash(config.openAiBaseUrl());
         this.apiKey = config.openAiApiKey() == null ? "" : config.openAiApiKey().trim();
+        this.upstreamPermits = new Semaphore(Math.max(1, config.openAiMaxConcurrency()), true);
+    }
+
+    /**
+     * Requests currently waiting for one of the {@code OPENAI_MAX_CONCURRENCY} upstream permits.
+     */
+    public int permitWaiters() {
+        return upstreamPermits.getQueueLength();
     }
 
     public boolean isConfigured() {
@@ -39,6 +59,49 @@ public final class OpenAiChatClient {
         String primaryModel,
         List<String> fallbackModels,
         double temperature
+    ) throws IOException, InterruptedException {
+        return chatJson(systemPrompt, userPayload, primaryModel, fallbackModels, temperature, DEFAULT_TIMEOUT);
+    }
+
+    public JsonNode chatJson(
+        String systemPrompt,
+        JsonNode userPayload,
+        String primaryModel,
+        List<String> fallbackModels,
+        double temperature,
+        Duration timeout
+    ) throws IOException, InterruptedException {
+        if (!isConfigured()) {
+            throw new IOException("OPENAI_API_KEY is not configured");
+        }
+        List<String> models = orderedModels(primaryModel, fallbackModels);
+        IOException lastError = null;
+        for (String model : models) {
+            try {
+                return sendJsonChat(systemPrompt, userPayload, model, timeout);
+            } catch (IOException ex) {
+                lastError = ex;
+            }
+        }
+        if (lastError != null) {
+            throw lastError;
+        }
+        throw new IOException("No OpenAI model configured");
+    }
+
+    /**
+     * Plain-text chat completion streamed over SSE. Each content delta is passed to {@code onDelta}
+     * as it arrives; the full text is returned. Fallback models are only tried while nothing has been
+     * emitted yet, so callers never see output from two different models.
+     */
+    public String chatTextStream(
+        String systemPrompt,
+        JsonNode userPayload,
+        String primaryModel,
+        List<String> fallbackModels,
+        double temperature,
+        Duration timeout,
+        Consumer<String> onDelta
     ) throws IOException, InterruptedException {
         if (!isConfigured()) {
             throw new IOException("OPENAI_API_KEY is not configured");
@@ -46,9 +109,17 @@ public final class OpenAiChatClient {
         List<String> models = orderedModels(primaryModel, fallbackModels);
         IOException lastError = null;
         for (String model : models) {
+            StringBuilder text = new StringBuilder();
             try {
-                return sendJsonChat(systemPrompt, userPayload, model);
+                sendStreamingChat(systemPrompt, userPayload, model, timeout, delta -> {
+                    text.append(delta);
+                    onDelta.accept(delta);
+                });
+                return text.toString();
             } catch (IOException ex) {
+                if (text.length() > 0) {
+                    throw ex;
+                }
                 lastError = ex;
             }
         }
@@ -58,10 +129,101 @@ public final class OpenAiChatClient {
         throw new IOException("No OpenAI model configured");
     }
 
+    private void sendStreamingChat(
+        String systemPrompt,
+        JsonNode userPayload,
+        String model,
+        Duration timeout,
+        Consumer<String> onDelta
+    ) throws IOException, InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        ObjectNode payload = mapper.createObjectNode();
+        payload.put("model", model);
+        payload.put("stream", true);
+
+        ArrayNode messages = payload.putArray("messages");
+        ObjectNode systemMessage = messages.addObject();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", systemPrompt);
+
+        ObjectNode userMessage = messages.addObject();
+        userMessage.put("role", "user");
+        userMessage.put("content", mapper.writeValueAsString(userPayload));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/chat/completions"))
+            .timeout(timeout)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .header("Accept", "text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
+            .build();
+
+        upstreamPermits.acquire();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            CompletableFuture<Void> expiry = closeAtDeadline(response.body(), deadlineNanos);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                if (response.statusCode() / 100 != 2) {
+                    StringBuilder body = new StringBuilder();
+                    String line;
+                    while ((line = reader.readLine()) != null && body.length() < 1024) {
+                        body.append(line);
+                    }
+                    throw new IOException("OpenAI chat failed: HTTP " + response.statusCode() + " " + abbreviate(body.toString()));
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if ("[DONE]".equals(data)) {
+                        break;
+                    }
+                    if (data.isEmpty()) {
+                        continue;
+                    }
+                    JsonNode delta = mapper.readTree(data).path("choices").path(0).path("delta").path("content");
+                    if (delta.isTextual() && !delta.asText().isEmpty()) {
+                        onDelta.accept(delta.asText());
+                    }
+                }
+            } catch (IOException ex) {
+                if (expiry.isDone() && !expiry.isCancelled()) {
+                    throw new HttpTimeoutException("OpenAI chat stream exceeded its deadline");
+                }
+                throw ex;
+            } finally {
+                expiry.cancel(false);
+            }
+        } finally {
+            upstreamPermits.release();
+        }
+    }
+
+    /**
+     * Close {@code body} once {@code deadlineNanos} passes. {@link HttpRequest#timeout} only bounds the
+     * wait for the response headers, so without this a slow stream could outlive the caller's budget.
+     * Cancel the returned future once the body has been read.
+     */
+    private static CompletableFuture<Void> closeAtDeadline(InputStream body, long deadlineNanos) {
+        CompletableFuture<Void> expiry = new CompletableFuture<>();
+        expiry.completeOnTimeout(null, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+            .thenRun(() -> {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // The reader sees the stream as closed either way.
+                }
+            });
+        return expiry;
+    }
+
     private JsonNode sendJsonChat(
         String systemPrompt,
         JsonNode userPayload,
-        String model
+        String model,
+        Duration timeout
     ) throws IOException, InterruptedException {
         ObjectNode payload = mapper.createObjectNode();
         payload.put("model", model);
@@ -79,14 +241,20 @@ public final class OpenAiChatClient {
         responseFormat.put("type", "json_object");
 
         HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/chat/completions"))
-            .timeout(Duration.ofSeconds(60))
+            .timeout(timeout)
             .header("Authorization", "Bearer " + apiKey)
             .header("Content-Type", "application/json")
             .header("Accept", "application/json")
             .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
             .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response;
+        upstreamPermits.acquire();
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } finally {
+            upstreamPermits.release();
+        }
         if (response.statusCode() / 100 != 2) {
             throw new IOException("OpenAI chat failed: HTTP " + response.statusCode() + " " + abbreviate(response.body()));
         }
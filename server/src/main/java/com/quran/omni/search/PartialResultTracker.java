@@ -0,0 +1,29 @@
+package com.quran.omni.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which consolidated ayah results have already been streamed for one search,
+ * so each partial update only carries ayahs that were added or changed since the last one.
+ */
+final class PartialResultTracker {
+    private final Map<String, Models.ConsolidatedAyahResult> sent = new HashMap<>();
+
+    List<Models.ConsolidatedAyahResult> delta(List<Models.ConsolidatedAyahResult> current) {
+        List<Models.ConsolidatedAyahResult> changed = new ArrayList<>();
+        for (Models.ConsolidatedAyahResult result : current) {
+            Models.ConsolidatedAyahResult previous = sent.put(result.ayah_key(), result);
+            if (!result.equals(previous)) {
+                changed.add(result);
+            }
+        }
+        return changed;
+    }
+
+    int size() {
+        return sent.size();
+    }
+}
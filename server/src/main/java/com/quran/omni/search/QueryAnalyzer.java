@@ -0,0 +1,357 @@
+package com.quran.omni.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Reads a query once and derives everything the agent routes on: the intent, a named tafsir source,
+ * whether it asks about the circumstances of revelation, and the query rewrites used for retrieval.
+ * All keywords and phrases are compiled into one Aho-Corasick automaton, so a query is scanned in a
+ * single pass however many phrases there are. Matching runs on the query with whitespace collapsed
+ * and letters lowercased, which keeps offsets aligned with the text the rewrites are cut from.
+ */
+final class QueryAnalyzer {
+    private static final List<TafsirSourceDefinition> TAFSIR_SOURCES = List.of(
+        new TafsirSourceDefinition("ibn-kathir", "Ibn Kathir", List.of("ibn~katheer", "ibn~kathir"), List.of("ابن*كثير")),
+        new TafsirSourceDefinition("tabari", "al-Tabari", List.of("al~tabari", "tabari"), List.of("الطبري")),
+        new TafsirSourceDefinition("qurtubi", "al-Qurtubi", List.of("al~qurtubi", "qurtubi"), List.of("القرطبي")),
+        new TafsirSourceDefinition("jalalayn", "al-Jalalayn", List.of("jalalayn", "al~jalalayn"), List.of("الجلالين")),
+        new TafsirSourceDefinition("saadi", "al-Saadi", List.of("sa%di", "al~sa%di"), List.of("السعدي")),
+        new TafsirSourceDefinition("baghawi", "al-Baghawi", List.of("baghawi", "al~baghawi"), List.of("البغوي")),
+        new TafsirSourceDefinition("al-wasit", "al-Wasit", List.of("al~wasit", "wasit"), List.of("الوسيط")),
+        new TafsirSourceDefinition(
+            "maarif-ul-quran",
+            "Ma'arif al-Qur'an",
+            List.of("ma^arif al qur^an", "ma^arif ul qur^an", "maarif"),
+            List.of()
+        ),
+        new TafsirSourceDefinition(
+            "tazkirul-quran",
+            "Tazkirul Quran",
+            List.of("tazkir*ul*qur^an", "tazkirul*qur^an"),
+            List.of()
+        ),
+        new TafsirSourceDefinition("muyassar", "al-Muyassar", List.of("muyassar"), List.of("الميسر")),
+        new TafsirSourceDefinition(
+            "tahrir-wa-tanwir",
+            "al-Tahrir wa al-Tanwir",
+            List.of("tahrir wa tanwir", "tahrir wa al tanwir"),
+            List.of("التحرير والتنوير")
+        ),
+        new TafsirSourceDefinition("nathm-aldurar", "Nathm al-Durar", List.of("nathm al*durar"), List.of("نظم الدرر"))
+    );
+
+    private static final List<String> VERSE_WORDS = List.of("ayah", "verse", "chapter", "surah", "sura", "آية", "سورة");
+    private static final List<String> REVELATION_WORDS = List.of("revealed", "revelation", "نز", "وحي");
+    private static final List<String> EXPLANATION_WORDS = List.of("tafsir", "interpret", "explain", "meaning");
+    private static final List<String> COMMUNITY_WORDS = List.of("reflection", "post", "community");
+    private static final List<String> LEARNING_WORDS = List.of("course", "lesson", "study", "learn");
+    private static final List<String> TAFSIR_FILLERS = List.of("what does", "what is", "say about", "says about", "tafsir", "commentary");
+    private static final List<String> FOLLOW_UP_FILLERS = List.of(
+        "what does",
+        "show me",
+        "tell me about",
+        "interpretation of",
+        "reflection about",
+        "reflections about"
+    );
+
+    private static final Automaton AUTOMATON = buildAutomaton();
+
+    /**
+     * Routing intent of a query, in the order the checks take precedence.
+     */
+    enum QueryIntent {
+        VERSE_REFERENCE,
+        EXPLANATION,
+        COMMUNITY,
+        LEARNING,
+        TOPICAL
+    }
+
+    record TafsirSourceConstraint(String code, String label) {
+    }
+
+    /**
+     * Everything derived from one query. {@link #rewrite} picks the retrieval query for a step.
+     */
+    record Analysis(
+        String query,
+        QueryIntent intent,
+        TafsirSourceConstraint tafsirSource,
+        boolean revelationHistory,
+        String firstRewrite,
+        String followUpRewrite
+    ) {
+        String rewrite(int step, int noNewResultsStreak) {
+            String rewritten = step > 1 || noNewResultsStreak > 0 ? followUpRewrite : firstRewrite;
+            return rewritten.isBlank() ? query : rewritten;
+        }
+    }
+
+    Analysis analyze(String query) {
+        String text = collapseWhitespace(query);
+        char[] lowered = new char[text.length()];
+        for (int i = 0; i < lowered.length; i++) {
+            lowered[i] = Character.toLowerCase(text.charAt(i));
+        }
+
+        Set<Kind> kinds = new LinkedHashSet<>();
+        List<Match> matches = new ArrayList<>();
+        int tafsirSourceIndex = Integer.MAX_VALUE;
+        int state = 0;
+        for (int i = 0; i < lowered.length; i++) {
+            state = AUTOMATON.next(state, lowered[i]);
+            for (int patternId : AUTOMATON.outputs.get(state)) {
+                Phrase phrase = AUTOMATON.phrases.get(patternId);
+                int start = i + 1 - phrase.text().length();
+                if (phrase.wordBounded() && !(isBoundary(lowered, start - 1) && isBoundary(lowered, i + 1))) {
+                    continue;
+                }
+                kinds.add(phrase.kind());
+                matches.add(new Match(phrase, start, i + 1));
+                if (phrase.kind() == Kind.TAFSIR_SOURCE) {
+                    tafsirSourceIndex = Math.min(tafsirSourceIndex, phrase.source());
+                }
+            }
+        }
+
+        TafsirSourceDefinition source = tafsirSourceIndex == Integer.MAX_VALUE ? null : TAFSIR_SOURCES.get(tafsirSourceIndex);
+        boolean revelationHistory = kinds.contains(Kind.REVELATION) && kinds.contains(Kind.VERSE);
+        QueryIntent intent;
+        if (revelationHistory) {
+            intent = QueryIntent.EXPLANATION;
+        } else if (kinds.contains(Kind.VERSE)) {
+            intent = QueryIntent.VERSE_REFERENCE;
+        } else if (source != null || kinds.contains(Kind.EXPLANATION)) {
+            intent = QueryIntent.EXPLANATION;
+        } else if (kinds.contains(Kind.COMMUNITY)) {
+            intent = QueryIntent.COMMUNITY;
+        } else if (kinds.contains(Kind.LEARNING)) {
+            intent = QueryIntent.LEARNING;
+        } else {
+            intent = QueryIntent.TOPICAL;
+        }
+
+        boolean[] firstRemoved = new boolean[text.length()];
+        boolean[] followUpRemoved = new boolean[text.length()];
+        for (Match match : matches) {
+            Kind kind = match.phrase().kind();
+            boolean sourceMention = kind == Kind.TAFSIR_SOURCE && match.phrase().source() == tafsirSourceIndex;
+            if (source != null && (sourceMention || kind == Kind.TAFSIR_FILLER)) {
+                mark(firstRemoved, match);
+                mark(followUpRemoved, match);
+            }
+            if (kind == Kind.FOLLOW_UP_FILLER) {
+                mark(followUpRemoved, match);
+            }
+        }
+        return new Analysis(
+            query,
+            intent,
+            source == null ? null : new TafsirSourceConstraint(source.code(), source.label()),
+            revelationHistory,
+            source == null ? text : cut(text, firstRemoved),
+            cut(text, followUpRemoved)
+        );
+    }
+
+    private static void mark(boolean[] removed, Match match) {
+        for (int i = match.start(); i < match.end(); i++) {
+            removed[i] = true;
+        }
+    }
+
+    private static String cut(String text, boolean[] removed) {
+        StringBuilder kept = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            kept.append(removed[i] ? ' ' : text.charAt(i));
+        }
+        return collapseWhitespace(kept.toString());
+    }
+
+    private static String collapseWhitespace(String value) {
+        StringBuilder collapsed = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = collapsed.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                collapsed.append(' ');
+                pendingSpace = false;
+            }
+            collapsed.append(c);
+        }
+        return collapsed.toString();
+    }
+
+    private static boolean isBoundary(char[] text, int index) {
+        if (index < 0 || index >= text.length) {
+            return true;
+        }
+        char c = text[index];
+        return !(Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    private static Automaton buildAutomaton() {
+        List<Phrase> phrases = new ArrayList<>();
+        addWords(phrases, VERSE_WORDS, Kind.VERSE);
+        addWords(phrases, REVELATION_WORDS, Kind.REVELATION);
+        addWords(phrases, EXPLANATION_WORDS, Kind.EXPLANATION);
+        addWords(phrases, COMMUNITY_WORDS, Kind.COMMUNITY);
+        addWords(phrases, LEARNING_WORDS, Kind.LEARNING);
+        for (String filler : TAFSIR_FILLERS) {
+            phrases.add(new Phrase(filler, Kind.TAFSIR_FILLER, -1, true));
+        }
+        for (String filler : FOLLOW_UP_FILLERS) {
+            phrases.add(new Phrase(filler, Kind.FOLLOW_UP_FILLER, -1, true));
+        }
+        for (int i = 0; i < TAFSIR_SOURCES.size(); i++) {
+            TafsirSourceDefinition source = TAFSIR_SOURCES.get(i);
+            for (String spec : source.latinSpecs()) {
+                for (String variant : expand(spec)) {
+                    phrases.add(new Phrase(variant, Kind.TAFSIR_SOURCE, i, true));
+                }
+            }
+            for (String spec : source.arabicSpecs()) {
+                for (String variant : expand(spec)) {
+                    phrases.add(new Phrase(variant, Kind.TAFSIR_SOURCE, i, false));
+                }
+            }
+        }
+        return new Automaton(phrases);
+    }
+
+    /**
+     * Keywords match anywhere, as substrings, so "learn" also catches "learning".
+     */
+    private static void addWords(List<Phrase> phrases, List<String> words, Kind kind) {
+        for (String word : words) {
+            phrases.add(new Phrase(word, kind, -1, false));
+        }
+    }
+
+    /**
+     * Spell out the spelling variants of a source name: {@code ~} is an optional space, hyphen or both,
+     * {@code *} an optional space, {@code ^} an optional apostrophe, and {@code %} an optional
+     * apostrophe or space.
+     */
+    private static Set<String> expand(String spec) {
+        Set<String> variants = new LinkedHashSet<>();
+        variants.add("");
+        for (char c : spec.toCharArray()) {
+            List<String> options = switch (c) {
+                case '~' -> List.of("", " ", "-", " -");
+                case '*' -> List.of("", " ");
+                case '^' -> List.of("", "'", "’");
+                case '%' -> List.of("", "'", " ");
+                default -> List.of(String.valueOf(c));
+            };
+            Set<String> next = new LinkedHashSet<>();
+            for (String prefix : variants) {
+                for (String option : options) {
+                    next.add(prefix + option);
+                }
+            }
+            variants = next;
+        }
+        return variants;
+    }
+
+    private enum Kind {
+        VERSE,
+        REVELATION,
+        EXPLANATION,
+        COMMUNITY,
+        LEARNING,
+        TAFSIR_SOURCE,
+        TAFSIR_FILLER,
+        FOLLOW_UP_FILLER
+    }
+
+    private record Phrase(String text, Kind kind, int source, boolean wordBounded) {
+    }
+
+    private record Match(Phrase phrase, int start, int end) {
+    }
+
+    private record TafsirSourceDefinition(String code, String label, List<String> latinSpecs, List<String> arabicSpecs) {
+    }
+
+    /**
+     * Aho-Corasick automaton over lowercased phrases. State 0 is the root; {@code outputs} lists,
+     * per state, every phrase ending there, including those reached through failure links.
+     */
+    private static final class Automaton {
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<Integer> failure = new ArrayList<>();
+        private final List<List<Integer>> outputs = new ArrayList<>();
+        private final List<Phrase> phrases;
+
+        private Automaton(List<Phrase> phrases) {
+            this.phrases = phrases;
+            addState();
+            for (int id = 0; id < phrases.size(); id++) {
+                int state = 0;
+                for (char c : phrases.get(id).text().toCharArray()) {
+                    Integer target = transitions.get(state).get(c);
+                    if (target == null) {
+                        target = addState();
+                        transitions.get(state).put(c, target);
+                    }
+                    state = target;
+                }
+                outputs.get(state).add(id);
+            }
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int child : transitions.get(0).values()) {
+                failure.set(child, 0);
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure.get(state);
+                    while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                        fallback = failure.get(fallback);
+                    }
+                    Integer target = transitions.get(fallback).get(edge.getKey());
+                    int childFailure = target == null || target == child ? 0 : target;
+                    failure.set(child, childFailure);
+                    outputs.get(child).addAll(outputs.get(childFailure));
+                    queue.add(child);
+                }
+            }
+        }
+
+        private int addState() {
+            transitions.add(new HashMap<>());
+            failure.add(0);
+            outputs.add(new ArrayList<>());
+            return transitions.size() - 1;
+        }
+
+        int next(int state, char c) {
+            while (true) {
+                Integer target = transitions.get(state).get(c);
+                if (target != null) {
+                    return target;
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = failure.get(state);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.quran.omni.search;
+
+import java.text.Normalizer;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Canonical form of a query for cache keys and request coalescing, so spellings of the same
+ * question share one entry: "Ayat al-Kursi", "ayat al kursi " and "آيَةُ الكُرْسِيّ" with or without
+ * tashkeel. Only the key is canonicalized; the search itself still runs on the query as typed.
+ * Transliteration variants are folded only for words of a known vocabulary, surah names and
+ * reference words, tafsir names and a few common terms, so ordinary English words such as
+ * "later" and "latter" keep their meaning.
+ */
+final class QueryCanonicalizer {
+    private static final Pattern POSSESSIVE = Pattern.compile("(?<=\\p{L})['’]s\\b");
+    private static final Pattern REFERENCE_SEPARATOR = Pattern.compile("(?<=\\d)\\s*([:,;&-])\\s*(?=\\d)");
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}:,;&-]+|(?<!\\d)[:,;&-]|[:,;&-](?!\\d)");
+    private static final Pattern LATIN_WORD = Pattern.compile("\\b[a-z]+\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Map<String, String> ARTICLES = Map.of("el", "al", "ul", "al");
+    private static final Set<String> COMMON_TERMS = Set.of(
+        "quran", "tafsir", "tafseer", "kursi", "kursee", "kathir", "katheer", "tabari", "qurtubi",
+        "jalalayn", "jalalain", "saadi", "baghawi", "wasit", "muyassar", "maarif", "tazkirul", "tahrir",
+        "tanwir", "durar"
+    );
+    // Short names are left as typed: folding "fil" and "tin" would pull in "feel" and "teen".
+    private static final int MIN_FOLDED_WORD = 4;
+
+    private final Set<String> vocabulary;
+
+    /**
+     * @param vocabulary Latin words whose spelling variants are folded, such as
+     *     {@link QuranReferenceParser#transliteratedWords()}; {@link #COMMON_TERMS} are always included
+     */
+    QueryCanonicalizer(Set<String> vocabulary) {
+        this.vocabulary = Stream.concat(vocabulary.stream(), COMMON_TERMS.stream())
+            .filter(word -> word.length() >= MIN_FOLDED_WORD)
+            .map(QueryCanonicalizer::foldTransliteration)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Apply NFKC, drop possessive "'s", then {@link QuranReferenceParser#normalize} (lowercase,
+     * diacritics and harakat stripped, alef/ya/ta marbuta folded, apostrophes dropped, hyphens inside
+     * names split), fold the Persian letter forms, reduce punctuation to spaces except between the
+     * numbers of a reference, and fold transliteration variants of vocabulary words.
+     */
+    String canonicalize(String query) {
+        String compatible = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        String singular = POSSESSIVE.matcher(compatible).replaceAll("");
+        String normalized = QuranReferenceParser.normalize(singular)
+            .replace('ی', 'ي')
+            .replace('ک', 'ك');
+        String separated = REFERENCE_SEPARATOR.matcher(normalized).replaceAll("$1");
+        String words = PUNCTUATION.matcher(separated).replaceAll(" ");
+        Matcher latin = LATIN_WORD.matcher(words);
+        StringBuilder folded = new StringBuilder(words.length());
+        while (latin.find()) {
+            latin.appendReplacement(folded, Matcher.quoteReplacement(fold(latin.group())));
+        }
+        latin.appendTail(folded);
+        return WHITESPACE.matcher(folded).replaceAll(" ").trim();
+    }
+
+    /**
+     * Map "el"/"ul" to the article "al", and a word whose folded form is a vocabulary word to that
+     * form; any other word is kept as typed.
+     */
+    private String fold(String word) {
+        String article = ARTICLES.get(word);
+        if (article != null) {
+            return article;
+        }
+        String folded = foldTransliteration(word);
+        return vocabulary.contains(folded) ? folded : word;
+    }
+
+    /**
+     * Fold the spellings transliterations vary on: long vowels written "ee"/"oo", "q" for qaf,
+     * doubled letters and a trailing "h" after a vowel ("surah"/"sura").
+     */
+    private static String foldTransliteration(String word) {
+        String folded = word
+            .replace("ee", "i")
+            .replace("oo", "u")
+            .replace('q', 'k');
+        StringBuilder canonical = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (canonical.isEmpty() || canonical.charAt(canonical.length() - 1) != c) {
+                canonical.append(c);
+            }
+        }
+        int length = canonical.length();
+        if (length > 3 && canonical.charAt(length - 1) == 'h' && "aeiou".indexOf(canonical.charAt(length - 2)) >= 0) {
+            canonical.setLength(length - 1);
+        }
+        return canonical.toString();
+    }
+}
@@ -0,0 +1,531 @@
+package com.quran.omni.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic parser for Quran references in free-text queries: {@code 2:255}, {@code 2:255-257},
+ * {@code surah 18}, {@code al-kahf 1-10}, {@code ayah 35 of an-nur}, {@code ayat al-kursi},
+ * {@code سورة الكهف}, and lists of them separated by commas or "and".
+ *
+ * <p>Surah names are matched against a character trie built from the repository's transliterations
+ * and Arabic names plus common aliases and spellings. Latin words are folded before they reach the
+ * trie (doubled letters, {@code ee}/{@code oo}, {@code e}/{@code a}, {@code q}/{@code k}, a trailing
+ * {@code h}), so "yaseen", "Ya-Sin" and "yasin" land on the same key. Parsing a query takes a few
+ * microseconds and never calls the planner.
+ */
+final class QuranReferenceParser {
+    private static final int MAX_REFERENCES = 5;
+    private static final int MAX_NUMBER_DIGITS = 4;
+    private static final int MIN_BARE_NAME_LENGTH = 4;
+    private static final Pattern TOKEN = Pattern.compile("\\d+|\\p{L}+|[:,;&\\-]");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+    private static final Pattern APOSTROPHES = Pattern.compile("['`‘’ʾʿ]");
+    private static final Pattern DASHES = Pattern.compile("[‐-―−]");
+    private static final Pattern WORD_HYPHEN = Pattern.compile("(?<=\\p{L})-(?=\\p{L})");
+    private static final Pattern LATIN_WORD = Pattern.compile("[a-z]+");
+    private static final Set<String> ARTICLES = Set.of(
+        "al", "an", "ar", "as", "at", "ad", "adh", "az", "ash", "ath", "aal", "ال"
+    );
+    private static final Set<String> SURAH_WORDS = Set.of(
+        "surah", "sura", "surat", "surahs", "chapter", "سوره", "سورت"
+    );
+    private static final Set<String> AYAH_WORDS = Set.of(
+        "ayah", "ayat", "aya", "ayahs", "ayaat", "verse", "verses", "ايه", "ايات", "الايه", "الايات"
+    );
+    private static final Set<String> RANGE_WORDS = Set.of("to", "through", "thru", "until", "till", "الي", "حتي");
+    private static final Set<String> SEPARATOR_WORDS = Set.of("and", "also", "plus", "و");
+    private static final Set<String> FILLER_WORDS = Set.of(
+        "the", "of", "from", "in", "quran", "quranic", "koran", "holy", "noble", "القران", "من", "في"
+    );
+    // Surah names that are also prophets' names or everyday words: a bare mention is a topic, not a
+    // reference, unless "surah" or an ayah number says otherwise.
+    private static final Set<String> CONTEXT_ONLY_NAMES = Stream.of(
+        "muhammad", "ibrahim", "yusuf", "yunus", "maryam", "luqman", "nisa", "insan", "saba", "ahzab"
+    ).map(QuranReferenceParser::canonicalWord).collect(Collectors.toUnmodifiableSet());
+    private static final Map<Integer, List<String>> SURAH_ALIASES = Map.ofEntries(
+        Map.entry(1, List.of("fatiha", "al hamd", "umm al kitab", "ummul kitab")),
+        Map.entry(2, List.of("baqra", "bakra")),
+        Map.entry(3, List.of("al imran", "aal imran", "ale imran", "imran")),
+        Map.entry(9, List.of("tauba", "taubah", "baraah", "baraat")),
+        Map.entry(17, List.of("bani israil", "bani israel", "bani isra il")),
+        Map.entry(18, List.of("kahaf")),
+        Map.entry(36, List.of("ya sin")),
+        Map.entry(40, List.of("mumin", "al mumin")),
+        Map.entry(41, List.of("ha mim sajdah", "hamim sajdah", "ha meem sajdah")),
+        Map.entry(47, List.of("qital")),
+        Map.entry(55, List.of("rehman")),
+        Map.entry(67, List.of("tabarak", "tabarakalladhi")),
+        Map.entry(76, List.of("dahr")),
+        Map.entry(78, List.of("amma", "amma yatasaalun")),
+        Map.entry(93, List.of("zuha")),
+        Map.entry(94, List.of("inshirah", "alam nashrah", "sharh")),
+        Map.entry(111, List.of("lahab", "tabbat")),
+        Map.entry(112, List.of("tawhid", "tauheed", "qul huwallahu ahad"))
+    );
+    // English titles are ordinary phrases ("the light", "the cave"), so they always need context.
+    private static final Map<Integer, List<String>> ENGLISH_NAMES = Map.ofEntries(
+        Map.entry(1, List.of("the opening")),
+        Map.entry(2, List.of("the cow")),
+        Map.entry(3, List.of("the family of imran")),
+        Map.entry(4, List.of("the women")),
+        Map.entry(5, List.of("the table spread", "the table")),
+        Map.entry(6, List.of("the cattle")),
+        Map.entry(9, List.of("repentance")),
+        Map.entry(16, List.of("the bee")),
+        Map.entry(17, List.of("the night journey")),
+        Map.entry(18, List.of("the cave")),
+        Map.entry(24, List.of("the light")),
+        Map.entry(25, List.of("the criterion")),
+        Map.entry(27, List.of("the ant", "the ants")),
+        Map.entry(29, List.of("the spider")),
+        Map.entry(55, List.of("the most merciful", "the beneficent")),
+        Map.entry(56, List.of("the inevitable", "the event")),
+        Map.entry(67, List.of("the sovereignty", "the dominion")),
+        Map.entry(97, List.of("the night of decree", "the night of power")),
+        Map.entry(112, List.of("sincerity", "purity of faith")),
+        Map.entry(113, List.of("the daybreak")),
+        Map.entry(114, List.of("mankind"))
+    );
+    private static final List<AyahAlias> AYAH_ALIASES = List.of(
+        new AyahAlias(2, 255, 255, List.of(
+            "ayat al kursi", "ayatul kursi", "ayat ul kursi", "ayatal kursi", "ayat kursi",
+            "ayah al kursi", "ayah kursi", "throne verse", "verse of the throne", "ايه الكرسي"
+        )),
+        new AyahAlias(2, 285, 286, List.of("amana rasul", "amanar rasul", "amana al rasul")),
+        new AyahAlias(2, 282, 282, List.of("ayat al dayn", "verse of debt", "debt verse")),
+        new AyahAlias(24, 35, 35, List.of("ayat an nur", "ayat al nur", "light verse", "verse of light"))
+    );
+
+    private final Map<Integer, QuranTextRepository.SurahInfo> surahs = new HashMap<>();
+    private final TrieNode root = new TrieNode();
+
+    QuranReferenceParser(QuranTextRepository repository) {
+        for (QuranTextRepository.SurahInfo surah : repository.getSurahs()) {
+            surahs.put(surah.id(), surah);
+        }
+        // Insertion order is priority order: a key claimed by an official name is never re-pointed
+        // by a shorter form or an alias.
+        for (QuranTextRepository.SurahInfo surah : surahs.values()) {
+            addName(words(surah.transliteration()), wholeSurah(surah.id()), false, false);
+            addName(words(surah.nameArabic()), wholeSurah(surah.id()), false, false);
+        }
+        for (QuranTextRepository.SurahInfo surah : surahs.values()) {
+            addName(words(surah.transliteration()), wholeSurah(surah.id()), true, false);
+            addName(words(surah.nameArabic()), wholeSurah(surah.id()), true, false);
+        }
+        SURAH_ALIASES.forEach((surah, aliases) -> aliases.forEach(alias ->
+            addName(words(alias), wholeSurah(surah), false, false)
+        ));
+        ENGLISH_NAMES.forEach((surah, names) -> names.forEach(name ->
+            addName(words(name), wholeSurah(surah), false, true)
+        ));
+        for (AyahAlias alias : AYAH_ALIASES) {
+            Reference target = new Reference(alias.surah(), alias.startAyah(), alias.endAyah());
+            alias.phrases().forEach(phrase -> addName(words(phrase), target, false, false));
+        }
+    }
+
+    /**
+     * Find the Quran references in a query. Whole-surah mentions only count when the query is
+     * nothing but references; "patience in surah yusuf" is a topical search, not a request to
+     * read Yusuf from the start.
+     */
+    ParsedQuery parse(String query) {
+        if (query == null || query.isBlank() || surahs.isEmpty()) {
+            return ParsedQuery.NONE;
+        }
+        List<Token> tokens = tokenize(query);
+        List<Candidate> candidates = new ArrayList<>();
+        boolean exact = true;
+        int position = 0;
+        while (position < tokens.size() && candidates.size() < MAX_REFERENCES) {
+            Candidate candidate = matchAt(tokens, position);
+            if (candidate != null) {
+                if (isValid(candidate.reference())) {
+                    candidates.add(candidate);
+                } else {
+                    exact = false;
+                }
+                position = candidate.end();
+                continue;
+            }
+            Kind kind = tokens.get(position).kind();
+            if (kind != Kind.SEPARATOR && kind != Kind.FILLER && kind != Kind.SURAH_WORD) {
+                exact = false;
+            }
+            position++;
+        }
+        if (position < tokens.size()) {
+            exact = false;
+        }
+
+        List<Reference> references = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.explicitAyah()) {
+                references.add(candidate.reference());
+            } else if (exact && (candidate.hasContext() || !candidate.needsContext())) {
+                references.add(candidate.reference());
+            } else {
+                exact = false;
+            }
+        }
+        return references.isEmpty() ? ParsedQuery.NONE : new ParsedQuery(List.copyOf(references), exact);
+    }
+
+    /**
+     * The normalized Latin words of surah transliterations, transliterated aliases and the surah
+     * and ayah words, without articles. English titles and verse names are left out.
+     */
+    Set<String> transliteratedWords() {
+        List<String> phrases = new ArrayList<>(SURAH_WORDS);
+        phrases.addAll(AYAH_WORDS);
+        surahs.values().forEach(surah -> phrases.add(surah.transliteration()));
+        SURAH_ALIASES.values().forEach(phrases::addAll);
+        for (AyahAlias alias : AYAH_ALIASES) {
+            alias.phrases().stream().filter(phrase -> !phrase.contains("verse")).forEach(phrases::add);
+        }
+        return phrases.stream()
+            .flatMap(phrase -> words(phrase).stream())
+            .filter(word -> LATIN_WORD.matcher(word).matches() && !ARTICLES.contains(word))
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private Candidate matchAt(List<Token> tokens, int start) {
+        int position = start;
+        boolean surahWord = kind(tokens, position) == Kind.SURAH_WORD;
+        if (surahWord) {
+            position++;
+        }
+        Token head = position < tokens.size() ? tokens.get(position) : null;
+        if (head == null) {
+            return null;
+        }
+
+        if (!surahWord && head.kind() == Kind.AYAH_WORD && kind(tokens, position + 1) == Kind.NUMBER) {
+            // "ayah 35 of surah an-nur", "verses 1-5 al-mulk"
+            AyahRange range = readRange(tokens, position + 1);
+            int next = range.end();
+            while (kind(tokens, next) == Kind.FILLER) {
+                next++;
+            }
+            boolean keyword = kind(tokens, next) == Kind.SURAH_WORD;
+            if (keyword) {
+                next++;
+            }
+            Token surahToken = next < tokens.size() ? tokens.get(next) : null;
+            if (surahToken == null) {
+                return null;
+            }
+            if (surahToken.kind() == Kind.NAME && surahToken.target().isWholeSurah()) {
+                Reference reference = new Reference(surahToken.target().surah(), range.start(), range.finish());
+                return new Candidate(reference, true, true, false, next + 1);
+            }
+            if (keyword && surahToken.kind() == Kind.NUMBER) {
+                Reference reference = new Reference(surahToken.number(), range.start(), range.finish());
+                return new Candidate(reference, true, true, false, next + 1);
+            }
+            return null;
+        }
+
+        if (head.kind() == Kind.NUMBER) {
+            // "2:255", "2:255-257", "surah 2", "surah 2 ayah 255"
+            int surah = head.number();
+            position++;
+            if (kind(tokens, position) == Kind.COLON && kind(tokens, position + 1) == Kind.NUMBER) {
+                AyahRange range = readRange(tokens, position + 1);
+                return new Candidate(new Reference(surah, range.start(), range.finish()), true, true, false, range.end());
+            }
+            if (!surahWord) {
+                return null;
+            }
+            if (kind(tokens, position) == Kind.AYAH_WORD && kind(tokens, position + 1) == Kind.NUMBER) {
+                AyahRange range = readRange(tokens, position + 1);
+                return new Candidate(new Reference(surah, range.start(), range.finish()), true, true, false, range.end());
+            }
+            return new Candidate(wholeSurah(surah), false, true, false, position);
+        }
+
+        if (head.kind() == Kind.NAME) {
+            // "al-kahf", "surah al-kahf 1-10", "baqarah:255", "ayat al-kursi"
+            Reference target = head.target();
+            position++;
+            if (!target.isWholeSurah()) {
+                return new Candidate(target, true, true, false, position);
+            }
+            int numberAt = -1;
+            if ((kind(tokens, position) == Kind.COLON || kind(tokens, position) == Kind.AYAH_WORD)
+                && kind(tokens, position + 1) == Kind.NUMBER) {
+                numberAt = position + 1;
+            } else if (kind(tokens, position) == Kind.NUMBER) {
+                numberAt = position;
+            }
+            if (numberAt >= 0) {
+                AyahRange range = readRange(tokens, numberAt);
+                Reference reference = new Reference(target.surah(), range.start(), range.finish());
+                return new Candidate(reference, true, true, false, range.end());
+            }
+            return new Candidate(target, false, surahWord, head.needsContext(), position);
+        }
+        return null;
+    }
+
+    private static AyahRange readRange(List<Token> tokens, int position) {
+        int start = tokens.get(position).number();
+        if (kind(tokens, position + 1) == Kind.RANGE
+            && kind(tokens, position + 2) == Kind.NUMBER
+            && kind(tokens, position + 3) != Kind.COLON) {
+            return new AyahRange(start, tokens.get(position + 2).number(), position + 3);
+        }
+        return new AyahRange(start, null, position + 1);
+    }
+
+    private static Kind kind(List<Token> tokens, int position) {
+        return position < tokens.size() ? tokens.get(position).kind() : null;
+    }
+
+    private boolean isValid(Reference reference) {
+        QuranTextRepository.SurahInfo surah = surahs.get(reference.surah());
+        if (surah == null) {
+            return false;
+        }
+        if (reference.startAyah() == null) {
+            return true;
+        }
+        if (reference.startAyah() < 1 || reference.startAyah() > surah.totalVerses()) {
+            return false;
+        }
+        return reference.endAyah() == null || reference.endAyah() >= reference.startAyah();
+    }
+
+    private List<Token> tokenize(String query) {
+        List<String> raw = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(normalize(query));
+        while (matcher.find()) {
+            raw.add(matcher.group());
+        }
+        List<String> canonical = raw.stream().map(QuranReferenceParser::canonicalWord).collect(Collectors.toList());
+
+        List<Token> tokens = new ArrayList<>(raw.size());
+        int position = 0;
+        while (position < raw.size()) {
+            String word = raw.get(position);
+            NameMatch name = longestName(raw, canonical, position);
+            if (name != null) {
+                tokens.add(new Token(Kind.NAME, 0, name.entry().target(), name.entry().needsContext()));
+                position = name.end();
+                continue;
+            }
+            tokens.add(classify(word));
+            position++;
+        }
+        return tokens;
+    }
+
+    private NameMatch longestName(List<String> raw, List<String> canonical, int start) {
+        TrieNode node = root;
+        NameMatch best = null;
+        for (int position = start; position < raw.size() && Character.isLetter(raw.get(position).charAt(0)); position++) {
+            String word = canonical.get(position);
+            for (int i = 0; i < word.length() && node != null; i++) {
+                node = node.children.get(word.charAt(i));
+            }
+            if (node == null) {
+                break;
+            }
+            if (node.entry != null) {
+                best = new NameMatch(node.entry, position + 1);
+            }
+        }
+        return best;
+    }
+
+    private static Token classify(String word) {
+        char first = word.charAt(0);
+        if (Character.isDigit(first)) {
+            return word.length() <= MAX_NUMBER_DIGITS
+                ? new Token(Kind.NUMBER, Integer.parseInt(word), null, false)
+                : new Token(Kind.WORD, 0, null, false);
+        }
+        Kind kind = switch (word) {
+            case ":" -> Kind.COLON;
+            case "-" -> Kind.RANGE;
+            case ",", ";", "&" -> Kind.SEPARATOR;
+            default -> {
+                if (SURAH_WORDS.contains(word)) {
+                    yield Kind.SURAH_WORD;
+                }
+                if (AYAH_WORDS.contains(word)) {
+                    yield Kind.AYAH_WORD;
+                }
+                if (RANGE_WORDS.contains(word)) {
+                    yield Kind.RANGE;
+                }
+                if (SEPARATOR_WORDS.contains(word)) {
+                    yield Kind.SEPARATOR;
+                }
+                yield FILLER_WORDS.contains(word) ? Kind.FILLER : Kind.WORD;
+            }
+        };
+        return new Token(kind, 0, null, false);
+    }
+
+    private void addName(List<String> words, Reference target, boolean withoutArticle, boolean english) {
+        List<String> keyWords = words;
+        if (withoutArticle) {
+            if (words.size() < 2 || !ARTICLES.contains(words.get(0))) {
+                return;
+            }
+            keyWords = words.subList(1, words.size());
+        }
+        String key = keyWords.stream().map(QuranReferenceParser::canonicalWord).collect(Collectors.joining());
+        if (key.isEmpty()) {
+            return;
+        }
+        boolean needsContext = english
+            || key.codePointCount(0, key.length()) < MIN_BARE_NAME_LENGTH
+            || CONTEXT_ONLY_NAMES.contains(key);
+        TrieNode node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new TrieNode());
+        }
+        if (node.entry == null) {
+            node.entry = new TrieEntry(target, needsContext);
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(normalize(text));
+        while (matcher.find()) {
+            String word = matcher.group();
+            if (Character.isLetter(word.charAt(0))) {
+                words.add(word);
+            }
+        }
+        // Arabic names carry their article attached ("الكهف"); split it off like "al-kahf".
+        if (words.size() == 1 && words.get(0).startsWith("ال") && words.get(0).length() > 3) {
+            return List.of("ال", words.get(0).substring(2));
+        }
+        return words;
+    }
+
+    /**
+     * Lowercase, strip diacritics (Latin accents and Arabic harakat), fold Arabic letter variants,
+     * map Arabic-Indic digits, drop apostrophes, and turn hyphens inside names into spaces.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        StringBuilder folded = new StringBuilder(stripped.length());
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if (c >= '٠' && c <= '٩') {
+                folded.append((char) ('0' + (c - '٠')));
+            } else if (c >= '۰' && c <= '۹') {
+                folded.append((char) ('0' + (c - '۰')));
+            } else if (c == 'ٱ') {
+                folded.append('ا');
+            } else if (c == 'ة') {
+                folded.append('ه');
+            } else if (c == 'ى') {
+                folded.append('ي');
+            } else if (c != 'ـ') {
+                folded.append(c);
+            }
+        }
+        String unquoted = APOSTROPHES.matcher(folded).replaceAll("");
+        String dashes = DASHES.matcher(unquoted).replaceAll("-");
+        return WORD_HYPHEN.matcher(dashes).replaceAll(" ");
+    }
+
+    private static String canonicalWord(String word) {
+        if (!LATIN_WORD.matcher(word).matches()) {
+            return word;
+        }
+        String folded = word
+            .replace("ou", "u")
+            .replace("oo", "u")
+            .replace("ee", "i")
+            .replace('o', 'u')
+            .replace('e', 'a')
+            .replace('q', 'k');
+        StringBuilder canonical = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (canonical.isEmpty() || canonical.charAt(canonical.length() - 1) != c) {
+                canonical.append(c);
+            }
+        }
+        if (canonical.length() > 3 && canonical.charAt(canonical.length() - 1) == 'h') {
+            canonical.setLength(canonical.length() - 1);
+        }
+        return canonical.toString();
+    }
+
+    private static Reference wholeSurah(int surah) {
+        return new Reference(surah, null, null);
+    }
+
+    /**
+     * A parsed reference; {@code startAyah == null} means the whole surah, {@code endAyah == null}
+     * a single ayah.
+     */
+    record Reference(int surah, Integer startAyah, Integer endAyah) {
+        boolean isWholeSurah() {
+            return startAyah == null;
+        }
+    }
+
+    /**
+     * {@code exact} is true when the query held nothing but references, separators, and words like
+     * "surah" or "quran", so the lookups fully answer it.
+     */
+    record ParsedQuery(List<Reference> references, boolean exact) {
+        static final ParsedQuery NONE = new ParsedQuery(List.of(), false);
+    }
+
+    private enum Kind {
+        NUMBER,
+        NAME,
+        SURAH_WORD,
+        AYAH_WORD,
+        COLON,
+        RANGE,
+        SEPARATOR,
+        FILLER,
+        WORD
+    }
+
+    private record Token(Kind kind, int number, Reference target, boolean needsContext) {
+    }
+
+    private record Candidate(Reference reference, boolean explicitAyah, boolean hasContext, boolean needsContext, int end) {
+    }
+
+    private record AyahRange(int start, Integer finish, int end) {
+    }
+
+    private record AyahAlias(int surah, int startAyah, int endAyah, List<String> phrases) {
+    }
+
+    private record NameMatch(TrieEntry entry, int end) {
+    }
+
+    private record TrieEntry(Reference target, boolean needsContext) {
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private TrieEntry entry;
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -84,6 +85,15 @@ public final class QuranTextRepository {
         return Optional.ofNullable(surahs.get(surahNumber));
     }
 
+    /**
+     * All loaded surahs in mushaf order.
+     */
+    public List<SurahInfo> getSurahs() {
+        return surahs.values().stream()
+            .sorted(Comparator.comparingInt(SurahInfo::id))
+            .toList();
+    }
+
     public record VerseInfo(
         int surah,
         int ayah,
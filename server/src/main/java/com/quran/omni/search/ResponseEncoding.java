@@ -0,0 +1,119 @@
+package com.quran.omni.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.Locale;
+
+/**
+ * Wire encodings a client can ask for with {@code Accept}. Each one owns a preconfigured mapper,
+ * so writers are built once and shared by every request.
+ */
+public enum ResponseEncoding {
+    JSON("application/json", "application/x-ndjson; charset=utf-8", new ObjectMapper()),
+    SMILE("application/x-jackson-smile", "application/x-jackson-smile", new ObjectMapper(new SmileFactory())),
+    CBOR("application/cbor", "application/cbor", new ObjectMapper(new CBORFactory()));
+
+    private final String mediaType;
+    private final String streamContentType;
+    private final ObjectWriter writer;
+    private final ObjectWriter responseWriter;
+
+    ResponseEncoding(String mediaType, String streamContentType, ObjectMapper mapper) {
+        this.mediaType = mediaType;
+        this.streamContentType = streamContentType;
+        this.writer = mapper.writer();
+        this.responseWriter = mapper.writerFor(Models.SearchResponse.class);
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Content type of the event stream: newline-delimited for JSON, length-prefixed frames otherwise.
+     */
+    public String streamContentType() {
+        return streamContentType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    public ObjectWriter writer() {
+        return writer;
+    }
+
+    public ObjectWriter responseWriter() {
+        return responseWriter;
+    }
+
+    /**
+     * Pick the encoding an {@code Accept} header prefers: the supported media type with the highest
+     * q-value, the first listed on a tie, falling back to JSON. Entries with {@code q=0} are ignored.
+     */
+    public static ResponseEncoding fromAccept(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        ResponseEncoding best = JSON;
+        double bestQuality = 0;
+        for (String entry : accept.split(",")) {
+            String[] parts = entry.split(";");
+            String type = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (quality <= bestQuality) {
+                continue;
+            }
+            for (ResponseEncoding encoding : values()) {
+                if (type.equals(encoding.mediaType)) {
+                    best = encoding;
+                    bestQuality = quality;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: listed as {@code gzip} or
+     * {@code x-gzip}, or covered by {@code *}, with a q-value above 0. An explicit gzip entry wins
+     * over the wildcard.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return quality(parts) > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = quality(parts) > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    /**
+     * The {@code q} parameter of a header entry split on ';'; 1 when it is missing or malformed.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Math.max(0, Math.min(1, Double.parseDouble(param.substring(2))));
+                } catch (NumberFormatException ex) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+}
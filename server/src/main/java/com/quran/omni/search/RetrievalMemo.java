@@ -0,0 +1,88 @@
+package com.quran.omni.search;
+
+import com.quran.omni.SpaceType;
+import com.quran.omni.goodmem.GoodMemClient.MemoryHit;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares GoodMem retrievals between the searches of one batch.
+ * The first search to ask for a given (query, space, limit, filter) performs the call; every other
+ * search asking for the same retrieval waits for that result. Failed retrievals are not remembered.
+ */
+final class RetrievalMemo {
+    private final Map<RetrievalKey, CompletableFuture<List<MemoryHit>>> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger performed = new AtomicInteger();
+    private final AtomicInteger shared = new AtomicInteger();
+
+    List<MemoryHit> retrieve(
+        String query,
+        SpaceType spaceType,
+        String spaceId,
+        int limit,
+        String filter,
+        Retrieval retrieval
+    ) throws IOException, InterruptedException {
+        RetrievalKey key = new RetrievalKey(query, spaceType, spaceId, limit, filter);
+        CompletableFuture<List<MemoryHit>> created = new CompletableFuture<>();
+        CompletableFuture<List<MemoryHit>> existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            shared.incrementAndGet();
+            return await(existing);
+        }
+
+        performed.incrementAndGet();
+        try {
+            List<MemoryHit> hits = retrieval.run();
+            created.complete(hits);
+            return hits;
+        } catch (IOException | InterruptedException | RuntimeException ex) {
+            entries.remove(key, created);
+            created.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    int performedCount() {
+        return performed.get();
+    }
+
+    int sharedCount() {
+        return shared.get();
+    }
+
+    private static List<MemoryHit> await(CompletableFuture<List<MemoryHit>> future)
+        throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Shared retrieval failed", cause);
+        }
+    }
+
+    @FunctionalInterface
+    interface Retrieval {
+        List<MemoryHit> run() throws IOException, InterruptedException;
+    }
+
+    private record RetrievalKey(
+        String query,
+        SpaceType spaceType,
+        String spaceId,
+        int limit,
+        String filter
+    ) {
+    }
+}
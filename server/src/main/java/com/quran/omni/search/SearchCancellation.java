@@ -0,0 +1,83 @@
+package com.quran.omni.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Cancellation signal for a search. Callers cancel it when their client goes away; the search
+ * registers cleanup actions (aborting retrievals, interrupting the thread blocked on an upstream
+ * call) that run exactly once when that happens.
+ */
+public final class SearchCancellation {
+    private final List<Runnable> actions = new ArrayList<>();
+    private boolean cancelled;
+
+    public static SearchCancellation none() {
+        return new SearchCancellation();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pending = new ArrayList<>(actions);
+            actions.clear();
+        }
+        for (Runnable action : pending) {
+            action.run();
+        }
+    }
+
+    /**
+     * Run {@code action} on cancellation, or immediately if already cancelled. The returned handle
+     * unregisters the action once it is no longer needed.
+     */
+    Runnable onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                actions.add(action);
+                return () -> remove(action);
+            }
+        }
+        action.run();
+        return () -> { };
+    }
+
+    /**
+     * Interrupt the current thread if the search is cancelled before the returned handle is run.
+     * Running the handle also clears any interrupt delivered this way.
+     */
+    Runnable interruptOnCancel() {
+        Thread thread = Thread.currentThread();
+        Runnable unregister = onCancel(thread::interrupt);
+        return () -> {
+            unregister.run();
+            if (isCancelled()) {
+                Thread.interrupted();
+            }
+        };
+    }
+
+    /**
+     * Cancel {@code future} (interrupting its worker) if the search is cancelled while it runs.
+     */
+    Runnable track(Future<?> future, Runnable onAbort) {
+        return onCancel(() -> {
+            if (future.cancel(true)) {
+                onAbort.run();
+            }
+        });
+    }
+
+    private synchronized void remove(Runnable action) {
+        actions.remove(action);
+    }
+}
@@ -0,0 +1,10 @@
+package com.quran.omni.search;
+
+/**
+ * Thrown when a search stops early because nobody is waiting for its result any more.
+ */
+public final class SearchCancelledException extends RuntimeException {
+    public SearchCancelledException(String message) {
+        super(message);
+    }
+}
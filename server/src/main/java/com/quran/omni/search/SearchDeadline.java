@@ -0,0 +1,61 @@
+package com.quran.omni.search;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Overall time budget for one search. Every upstream call is bounded by what is left of it, and
+ * stages that would not fit are skipped; {@link #truncated()} records whether that happened.
+ */
+public final class SearchDeadline {
+    private final long deadlineNanos;
+    private final Duration budget;
+    private final AtomicBoolean truncated = new AtomicBoolean();
+
+    private SearchDeadline(Duration budget) {
+        this.budget = budget;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+
+    public static SearchDeadline after(Duration budget) {
+        return new SearchDeadline(budget);
+    }
+
+    public Duration budget() {
+        return budget;
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Whether at least {@code reserve} of the budget is still available.
+     */
+    public boolean hasAtLeast(Duration reserve) {
+        return remaining().compareTo(reserve) >= 0;
+    }
+
+    /**
+     * Timeout for one upstream call: the call's own cap, or the remaining budget if that is shorter.
+     */
+    public Duration callTimeout(Duration cap) {
+        Duration remaining = remaining();
+        if (remaining.isZero()) {
+            return Duration.ofMillis(1);
+        }
+        return remaining.compareTo(cap) < 0 ? remaining : cap;
+    }
+
+    public void markTruncated() {
+        truncated.set(true);
+    }
+
+    public boolean truncated() {
+        return truncated.get();
+    }
+}
@@ -0,0 +1,230 @@
+package com.quran.omni.search;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and per-stage latency histograms for the search pipeline.
+ */
+public final class SearchMetrics {
+    private static final double[] BUCKET_BOUNDS_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 60
+    };
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<StageKey, LatencyHistogram> stages = new ConcurrentHashMap<>();
+    private final LongAdder searchesCancelled = new LongAdder();
+    private final LongAdder retrievalsCancelled = new LongAdder();
+    private final LongAdder plannerStepsSkipped = new LongAdder();
+    private final LongAdder overviewsSkipped = new LongAdder();
+    private final LongAdder earlyStops = new LongAdder();
+    private final LongAdder earlyStopStepsSaved = new LongAdder();
+    private final LongAdder canonicalCacheHits = new LongAdder();
+    private final LongAdder approximateCacheHits = new LongAdder();
+    private final LongAdder staleCacheHits = new LongAdder();
+    private final LongAdder cacheRefreshFailures = new LongAdder();
+    private final Map<CacheFreshness.State, LongAdder> cacheRefreshes = new EnumMap<>(CacheFreshness.State.class);
+    private final Map<Speculation, LongAdder> speculations = new EnumMap<>(Speculation.class);
+
+    /**
+     * What happened to a speculative retrieval started alongside the LLM planner.
+     */
+    enum Speculation {
+        USED,
+        KEPT,
+        CANCELLED
+    }
+
+    public SearchMetrics() {
+        for (Speculation outcome : Speculation.values()) {
+            speculations.put(outcome, new LongAdder());
+        }
+        cacheRefreshes.put(CacheFreshness.State.STALE, new LongAdder());
+        cacheRefreshes.put(CacheFreshness.State.REFRESH_AHEAD, new LongAdder());
+    }
+
+    /**
+     * Record how long one stage took. {@code variant} distinguishes paths through the stage, such as
+     * the planner that ran or the space that was searched; use {@code ""} when there is only one.
+     */
+    void recordStage(String stage, String variant, long nanos) {
+        stages.computeIfAbsent(new StageKey(stage, variant), key -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    void recordCancelledSearch(int plannerStepsSkipped, boolean overviewSkipped) {
+        searchesCancelled.increment();
+        this.plannerStepsSkipped.add(plannerStepsSkipped);
+        if (overviewSkipped) {
+            overviewsSkipped.increment();
+        }
+    }
+
+    void recordCancelledRetrieval() {
+        retrievalsCancelled.increment();
+    }
+
+    void recordEarlyStop(int plannerStepsSaved) {
+        earlyStops.increment();
+        earlyStopStepsSaved.add(plannerStepsSaved);
+    }
+
+    void recordCanonicalCacheHit() {
+        canonicalCacheHits.increment();
+    }
+
+    void recordApproximateCacheHit() {
+        approximateCacheHits.increment();
+    }
+
+    void recordStaleCacheHit() {
+        staleCacheHits.increment();
+    }
+
+    /**
+     * Count a background refresh started for an entry that was {@code STALE} or due for {@code REFRESH_AHEAD}.
+     */
+    void recordCacheRefresh(CacheFreshness.State reason) {
+        cacheRefreshes.get(reason).increment();
+    }
+
+    void recordCacheRefreshFailure() {
+        cacheRefreshFailures.increment();
+    }
+
+    void recordSpeculation(Speculation outcome) {
+        speculations.get(outcome).increment();
+    }
+
+    public long searchesCancelled() {
+        return searchesCancelled.sum();
+    }
+
+    public long retrievalsCancelled() {
+        return retrievalsCancelled.sum();
+    }
+
+    public long plannerStepsSkipped() {
+        return plannerStepsSkipped.sum();
+    }
+
+    public long overviewsSkipped() {
+        return overviewsSkipped.sum();
+    }
+
+    public long earlyStops() {
+        return earlyStops.sum();
+    }
+
+    public long earlyStopStepsSaved() {
+        return earlyStopStepsSaved.sum();
+    }
+
+    public long canonicalCacheHits() {
+        return canonicalCacheHits.sum();
+    }
+
+    public long approximateCacheHits() {
+        return approximateCacheHits.sum();
+    }
+
+    public long staleCacheHits() {
+        return staleCacheHits.sum();
+    }
+
+    public long cacheRefreshFailures() {
+        return cacheRefreshFailures.sum();
+    }
+
+    void writeTo(PrometheusText text) {
+        List<StageSnapshot> snapshots = stages.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(Comparator.comparing(StageKey::stage).thenComparing(StageKey::variant)))
+            .map(entry -> new StageSnapshot(entry.getKey().labels(), entry.getValue().snapshot()))
+            .toList();
+
+        String histogram = "search_stage_duration_seconds";
+        text.header(histogram, "histogram", "Wall time per search pipeline stage.");
+        for (StageSnapshot stage : snapshots) {
+            String labels = stage.labels();
+            LatencyHistogram.Snapshot snapshot = stage.snapshot();
+            for (double bound : BUCKET_BOUNDS_SECONDS) {
+                text.sample(
+                    histogram + "_bucket",
+                    labels + "," + PrometheusText.label("le", PrometheusText.format(bound)),
+                    snapshot.countAtOrBelow(bound)
+                );
+            }
+            text.sample(histogram + "_bucket", labels + "," + PrometheusText.label("le", "+Inf"), snapshot.count());
+            text.sample(histogram + "_sum", labels, snapshot.sumSeconds());
+            text.sample(histogram + "_count", labels, snapshot.count());
+        }
+
+        String quantiles = "search_stage_duration_quantile_seconds";
+        text.header(quantiles, "gauge", "Latency quantiles per stage since start-up, from the high-resolution histogram.");
+        for (StageSnapshot stage : snapshots) {
+            for (double quantile : QUANTILES) {
+                text.sample(
+                    quantiles,
+                    stage.labels() + "," + PrometheusText.label("quantile", PrometheusText.format(quantile)),
+                    stage.snapshot().quantileSeconds(quantile)
+                );
+            }
+        }
+
+        text.counter("search_cancelled_total", "Searches cancelled after every caller disconnected.", searchesCancelled());
+        text.counter("search_retrievals_cancelled_total", "GoodMem retrievals aborted by cancellation.", retrievalsCancelled());
+        text.counter("search_planner_steps_skipped_total", "Planner steps not run because the search was cancelled.", plannerStepsSkipped());
+        text.counter("search_overviews_skipped_total", "Overviews not generated because the search was cancelled.", overviewsSkipped());
+        text.counter("search_early_stops_total", "Agent loops ended because another step was unlikely to change the results.", earlyStops());
+        text.counter("search_early_stop_steps_saved_total", "Planner steps left unused by early stops.", earlyStopStepsSaved());
+        text.counter(
+            "search_cache_canonical_hits_total",
+            "Search cache hits for a query spelled differently from the one that filled the entry.",
+            canonicalCacheHits()
+        );
+        text.counter(
+            "search_cache_approximate_hits_total",
+            "Searches answered from the cached response of a near-duplicate query.",
+            approximateCacheHits()
+        );
+        text.counter("search_cache_stale_hits_total", "Search cache hits served past the soft TTL.", staleCacheHits());
+        text.header(
+            "search_cache_refreshes_total",
+            "counter",
+            "Background search cache refreshes by reason: a stale entry, or a hot entry refreshed ahead of its TTL."
+        );
+        for (Map.Entry<CacheFreshness.State, LongAdder> entry : cacheRefreshes.entrySet()) {
+            text.sample(
+                "search_cache_refreshes_total",
+                PrometheusText.label("reason", entry.getKey() == CacheFreshness.State.STALE ? "stale" : "ahead"),
+                entry.getValue().sum()
+            );
+        }
+        text.counter("search_cache_refresh_failures_total", "Background search cache refreshes that failed.", cacheRefreshFailures());
+        text.header(
+            "search_speculative_retrievals_total",
+            "counter",
+            "Speculative retrievals by outcome: used by the planner, kept as extra evidence, or cancelled."
+        );
+        for (Map.Entry<Speculation, LongAdder> entry : speculations.entrySet()) {
+            text.sample(
+                "search_speculative_retrievals_total",
+                PrometheusText.label("outcome", entry.getKey().name().toLowerCase(Locale.ROOT)),
+                entry.getValue().sum()
+            );
+        }
+    }
+
+    private record StageSnapshot(String labels, LatencyHistogram.Snapshot snapshot) {
+    }
+
+    private record StageKey(String stage, String variant) {
+        String labels() {
+            return PrometheusText.label("stage", stage) + "," + PrometheusText.label("variant", variant);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.quran.omni.search;
+
+/**
+ * Thrown when a search is rejected by admission control; callers should retry after the given delay.
+ */
+public final class SearchOverloadedException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public SearchOverloadedException(int retryAfterSeconds) {
+        super("Search capacity exceeded; retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -51,7 +51,8 @@ public final class SearchResultAssembler {
         List<MemoryHit> hits,
         Models.AiOverview aiOverview,
         List<Models.AgentToolCall> toolCalls,
-        Models.AgentMetadata agentMetadata
+        Models.AgentMetadata agentMetadata,
+        SearchDeadline deadline
     ) {
         String resolvedLanguage = language == null || language.isBlank()
             ? config.defaultLanguage()
@@ -65,80 +66,12 @@ public final class SearchResultAssembler {
             hits.size()
         );
 
-        List<Models.QuranResult> quranResults = new ArrayList<>();
-        List<Models.TranslationResult> translationResults = new ArrayList<>();
-        List<Models.TafsirResult> tafsirResults = new ArrayList<>();
-        List<Models.PostResult> postResults = new ArrayList<>();
-        List<Models.CourseResult> courseResults = new ArrayList<>();
-        List<Models.ArticleResult> articleResults = new ArrayList<>();
-
-        for (MemoryHit hit : hits) {
-            switch (hit.spaceType()) {
-                case QURAN -> quranResults.add(toQuranResult(hit));
-                case TRANSLATION -> translationResults.add(toTranslationResult(hit));
-                case TAFSIR -> tafsirResults.add(toTafsirResult(hit));
-                case POST -> postResults.add(toPostResult(hit));
-                case COURSE -> courseResults.add(toCourseResult(hit));
-                case ARTICLE -> articleResults.add(toArticleResult(hit));
-            }
-        }
-
+        HitGroups groups = groupHits(hits);
         Map<String, AyahAggregate> ayahMap = new HashMap<>();
-
-        for (Models.QuranResult result : quranResults) {
-            if (!isValidAyahKey(result.ayah_key())) {
-                continue;
-            }
-            AyahAggregate aggregate = ayahMap.computeIfAbsent(
-                result.ayah_key(),
-                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
-            );
-            aggregate.setQuran(result);
-        }
-
-        for (Models.TranslationResult result : translationResults) {
-            if (!isValidAyahKey(result.ayah_key())) {
-                continue;
-            }
-            AyahAggregate aggregate = ayahMap.computeIfAbsent(
-                result.ayah_key(),
-                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
-            );
-            aggregate.addTranslation(result);
-        }
-
-        for (Models.TafsirResult result : tafsirResults) {
-            if (!isValidAyahKey(result.ayah_key())) {
-                continue;
-            }
-            AyahAggregate aggregate = ayahMap.computeIfAbsent(
-                result.ayah_key(),
-                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
-            );
-            aggregate.addTafsir(result);
-        }
-
-        Set<String> attachedPostIds = new LinkedHashSet<>();
-        for (Models.PostResult result : postResults) {
-            if (result.ayah_keys() == null || result.ayah_keys().isEmpty()) {
-                continue;
-            }
-            boolean hasValidAyah = false;
-            for (String ayahKey : result.ayah_keys()) {
-                if (!isValidAyahKey(ayahKey)) {
-                    continue;
-                }
-                hasValidAyah = true;
-                AyahAggregate aggregate = ayahMap.computeIfAbsent(ayahKey, AyahAggregate::fromKey);
-                aggregate.addPost(result);
-            }
-            if (hasValidAyah) {
-                attachedPostIds.add(result.post_id());
-            }
-        }
+        Set<String> attachedPostIds = aggregateAyahs(groups, ayahMap);
 
         if (requestedSpaces.contains(SpaceType.QURAN)) {
-            ensureQuranText(query, spaceIds, ayahMap);
+            ensureQuranText(query, spaceIds, ayahMap, deadline);
         }
         if (requestedSpaces.contains(SpaceType.TRANSLATION)) {
             ensureTranslations(ayahMap);
@@ -150,15 +83,15 @@ public final class SearchResultAssembler {
             .collect(Collectors.toList());
 
         List<ScoredDirectHit> directHitCandidates = new ArrayList<>();
-        for (Models.PostResult post : postResults) {
+        for (Models.PostResult post : groups.posts()) {
             if (!attachedPostIds.contains(post.post_id())) {
                 directHitCandidates.add(new ScoredDirectHit(post.score(), post));
             }
         }
-        for (Models.CourseResult course : courseResults) {
+        for (Models.CourseResult course : groups.courses()) {
             directHitCandidates.add(new ScoredDirectHit(course.score(), course));
         }
-        for (Models.ArticleResult article : articleResults) {
+        for (Models.ArticleResult article : groups.articles()) {
             directHitCandidates.add(new ScoredDirectHit(article.score(), article));
         }
 
@@ -200,14 +133,166 @@ public final class SearchResultAssembler {
         );
     }
 
+    /**
+     * Assemble the verse-centric results for an in-progress search from local data only.
+     * Unlike {@link #assemble}, missing Quran text is never fetched from GoodMem.
+     */
+    public List<Models.ConsolidatedAyahResult> assemblePartial(
+        String language,
+        Set<SpaceType> requestedSpaces,
+        List<MemoryHit> hits
+    ) {
+        String resolvedLanguage = language == null || language.isBlank()
+            ? config.defaultLanguage()
+            : language.toLowerCase(Locale.ROOT);
+        Map<String, AyahAggregate> ayahMap = new HashMap<>();
+        aggregateAyahs(groupHits(hits), ayahMap);
+        if (requestedSpaces.contains(SpaceType.QURAN)) {
+            fillQuranTextLocally(ayahMap);
+        }
+        if (requestedSpaces.contains(SpaceType.TRANSLATION)) {
+            ensureTranslations(ayahMap);
+        }
+        return ayahMap.values().stream()
+            .map(aggregate -> aggregate.toResult(resolvedLanguage))
+            .sorted(Comparator.comparingDouble(Models.ConsolidatedAyahResult::topScore).reversed())
+            .collect(Collectors.toList());
+    }
+
+    private HitGroups groupHits(List<MemoryHit> hits) {
+        HitGroups groups = new HitGroups(
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>()
+        );
+        for (MemoryHit hit : hits) {
+            switch (hit.spaceType()) {
+                case QURAN -> groups.quran().add(toQuranResult(hit));
+                case TRANSLATION -> groups.translations().add(toTranslationResult(hit));
+                case TAFSIR -> groups.tafsirs().add(toTafsirResult(hit));
+                case POST -> groups.posts().add(toPostResult(hit));
+                case COURSE -> groups.courses().add(toCourseResult(hit));
+                case ARTICLE -> groups.articles().add(toArticleResult(hit));
+            }
+        }
+        return groups;
+    }
+
+    private Set<String> aggregateAyahs(HitGroups groups, Map<String, AyahAggregate> ayahMap) {
+        for (Models.QuranResult result : groups.quran()) {
+            if (!isValidAyahKey(result.ayah_key())) {
+                continue;
+            }
+            AyahAggregate aggregate = ayahMap.computeIfAbsent(
+                result.ayah_key(),
+                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
+            );
+            aggregate.setQuran(result);
+        }
+
+        for (Models.TranslationResult result : groups.translations()) {
+            if (!isValidAyahKey(result.ayah_key())) {
+                continue;
+            }
+            AyahAggregate aggregate = ayahMap.computeIfAbsent(
+                result.ayah_key(),
+                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
+            );
+            aggregate.addTranslation(result);
+        }
+
+        for (Models.TafsirResult result : groups.tafsirs()) {
+            if (!isValidAyahKey(result.ayah_key())) {
+                continue;
+            }
+            AyahAggregate aggregate = ayahMap.computeIfAbsent(
+                result.ayah_key(),
+                key -> new AyahAggregate(result.ayah_key(), result.surah(), result.ayah())
+            );
+            aggregate.addTafsir(result);
+        }
+
+        Set<String> attachedPostIds = new LinkedHashSet<>();
+        for (Models.PostResult result : groups.posts()) {
+            if (result.ayah_keys() == null || result.ayah_keys().isEmpty()) {
+                continue;
+            }
+            boolean hasValidAyah = false;
+            for (String ayahKey : result.ayah_keys()) {
+                if (!isValidAyahKey(ayahKey)) {
+                    continue;
+                }
+                hasValidAyah = true;
+                AyahAggregate aggregate = ayahMap.computeIfAbsent(ayahKey, AyahAggregate::fromKey);
+                aggregate.addPost(result);
+            }
+            if (hasValidAyah) {
+                attachedPostIds.add(result.post_id());
+            }
+        }
+        return attachedPostIds;
+    }
+
     private void ensureQuranText(
         String query,
         Map<SpaceType, String> spaceIds,
-        Map<String, AyahAggregate> ayahMap
+        Map<String, AyahAggregate> ayahMap,
+        SearchDeadline deadline
     ) {
         if (ayahMap.isEmpty()) {
             return;
         }
+
+        List<String> stillMissing = fillQuranTextLocally(ayahMap);
+        if (stillMissing.isEmpty()) {
+            return;
+        }
+
+        String spaceId = spaceIds.get(SpaceType.QURAN);
+        if (spaceId == null || spaceId.isBlank()) {
+            return;
+        }
+
+        List<List<String>> batches = batch(stillMissing, 25);
+        for (List<String> batch : batches) {
+            if (deadline.isExpired()) {
+                deadline.markTruncated();
+                logger.info("Skipping Quran text fetch for {} ayahs: search deadline reached", batch.size());
+                continue;
+            }
+            String filter = buildAyahFilter(batch);
+            try {
+                List<MemoryHit> hits = client.retrieve(
+                    query,
+                    SpaceType.QURAN,
+                    spaceId,
+                    batch.size(),
+                    filter,
+                    deadline.callTimeout(GoodMemClient.DEFAULT_TIMEOUT)
+                );
+                for (MemoryHit hit : hits) {
+                    Models.QuranResult quran = toQuranResult(hit);
+                    AyahAggregate aggregate = ayahMap.computeIfAbsent(
+                        quran.ayah_key(),
+                        key -> new AyahAggregate(quran.ayah_key(), quran.surah(), quran.ayah())
+                    );
+                    aggregate.setQuran(quran);
+                }
+            } catch (InterruptedException ex) {
+                // The assembly was cancelled; skip the remaining batches too.
+                Thread.currentThread().interrupt();
+                logger.info("Quran text fetch interrupted; skipping the remaining batches");
+                return;
+            } catch (Exception ex) {
+                logger.warn("Failed to fetch Quran text", ex);
+            }
+        }
+    }
+
+    private List<String> fillQuranTextLocally(Map<String, AyahAggregate> ayahMap) {
         List<String> missingKeys = ayahMap.values().stream()
             .filter(aggregate -> aggregate.quran == null)
             .map(aggregate -> aggregate.ayahKey)
@@ -215,10 +300,6 @@ public final class SearchResultAssembler {
             .distinct()
             .collect(Collectors.toList());
 
-        if (missingKeys.isEmpty()) {
-            return;
-        }
-
         List<String> stillMissing = new ArrayList<>();
         for (String ayahKey : missingKeys) {
             var verseOpt = quranTextRepo.getVerse(ayahKey);
@@ -250,33 +331,7 @@ public final class SearchResultAssembler {
                 stillMissing.add(ayahKey);
             }
         }
-
-        if (stillMissing.isEmpty()) {
-            return;
-        }
-
-        String spaceId = spaceIds.get(SpaceType.QURAN);
-        if (spaceId == null || spaceId.isBlank()) {
-            return;
-        }
-
-        List<List<String>> batches = batch(stillMissing, 25);
-        for (List<String> batch : batches) {
-            String filter = buildAyahFilter(batch);
-            try {
-                List<MemoryHit> hits = client.retrieve(query, SpaceType.QURAN, spaceId, batch.size(), filter);
-                for (MemoryHit hit : hits) {
-                    Models.QuranResult quran = toQuranResult(hit);
-                    AyahAggregate aggregate = ayahMap.computeIfAbsent(
-                        quran.ayah_key(),
-                        key -> new AyahAggregate(quran.ayah_key(), quran.surah(), quran.ayah())
-                    );
-                    aggregate.setQuran(quran);
-                }
-            } catch (Exception ex) {
-                logger.warn("Failed to fetch Quran text", ex);
-            }
-        }
+        return stillMissing;
     }
 
     private void ensureTranslations(Map<String, AyahAggregate> ayahMap) {
@@ -744,6 +799,16 @@ public final class SearchResultAssembler {
         }
     }
 
+    private record HitGroups(
+        List<Models.QuranResult> quran,
+        List<Models.TranslationResult> translations,
+        List<Models.TafsirResult> tafsirs,
+        List<Models.PostResult> posts,
+        List<Models.CourseResult> courses,
+        List<Models.ArticleResult> articles
+    ) {
+    }
+
     private record ScoredDirectHit(double score, Object hit) {
     }
 }
@@ -2,30 +2,45 @@ package com.quran.omni.search;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
 import com.quran.omni.AppConfig;
 import com.quran.omni.SpaceType;
 import com.quran.omni.goodmem.GoodMemClient;
 import com.quran.omni.goodmem.GoodMemClient.MemoryHit;
 import com.quran.omni.goodmem.SpaceRegistry;
+import com.quran.omni.search.QueryAnalyzer.QueryIntent;
+import com.quran.omni.search.QueryAnalyzer.TafsirSourceConstraint;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,114 +48,174 @@ import org.slf4j.LoggerFactory;
 public final class SearchService {
     private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
     private static final AtomicLong SEARCH_SEQUENCE = new AtomicLong();
+    private static final AtomicLong BATCH_SEQUENCE = new AtomicLong();
     private static final int SEARCH_CACHE_MAX_SIZE = 50_000;
     private static final int DIRECT_REFERENCE_MAX_AYAHS = 50;
-    private static final List<TafsirSourceDefinition> TAFSIR_SOURCE_DEFINITIONS = List.of(
-        TafsirSourceDefinition.of(
-            "ibn-kathir",
-            "Ibn Kathir",
-            "(?iu)\\bibn\\s*[- ]?katheer\\b",
-            "(?iu)\\bibn\\s*[- ]?kathir\\b",
-            "(?u)ابن\\s*كثير"
-        ),
-        TafsirSourceDefinition.of(
-            "tabari",
-            "al-Tabari",
-            "(?iu)\\bal\\s*[- ]?tabari\\b",
-            "(?iu)\\btabari\\b",
-            "(?u)الطبري"
-        ),
-        TafsirSourceDefinition.of(
-            "qurtubi",
-            "al-Qurtubi",
-            "(?iu)\\bal\\s*[- ]?qurtubi\\b",
-            "(?iu)\\bqurtubi\\b",
-            "(?u)القرطبي"
-        ),
-        TafsirSourceDefinition.of(
-            "jalalayn",
-            "al-Jalalayn",
-            "(?iu)\\bjalalayn\\b",
-            "(?iu)\\bal\\s*[- ]?jalalayn\\b",
-            "(?u)الجلالين"
-        ),
-        TafsirSourceDefinition.of(
-            "saadi",
-            "al-Saadi",
-            "(?iu)\\bsa[' ]?di\\b",
-            "(?iu)\\bal\\s*[- ]?sa[' ]?di\\b",
-            "(?u)السعدي"
-        ),
-        TafsirSourceDefinition.of(
-            "baghawi",
-            "al-Baghawi",
-            "(?iu)\\bbaghawi\\b",
-            "(?iu)\\bal\\s*[- ]?baghawi\\b",
-            "(?u)البغوي"
-        ),
-        TafsirSourceDefinition.of(
-            "al-wasit",
-            "al-Wasit",
-            "(?iu)\\bal\\s*[- ]?wasit\\b",
-            "(?iu)\\bwasit\\b",
-            "(?u)الوسيط"
-        ),
-        TafsirSourceDefinition.of(
-            "maarif-ul-quran",
-            "Ma'arif al-Qur'an",
-            "(?iu)\\bma['’]?arif\\s+(?:al|ul)\\s+qur['’]?an\\b",
-            "(?iu)\\bmaarif\\b"
-        ),
-        TafsirSourceDefinition.of(
-            "tazkirul-quran",
-            "Tazkirul Quran",
-            "(?iu)\\btazkir\\s*ul\\s*qur['’]?an\\b",
-            "(?iu)\\btazkirul\\s*qur['’]?an\\b"
-        ),
-        TafsirSourceDefinition.of(
-            "muyassar",
-            "al-Muyassar",
-            "(?iu)\\bmuyassar\\b",
-            "(?u)الميسر"
-        ),
-        TafsirSourceDefinition.of(
-            "tahrir-wa-tanwir",
-            "al-Tahrir wa al-Tanwir",
-            "(?iu)\\btahrir\\s+wa\\s+(?:al\\s+)?tanwir\\b",
-            "(?u)التحرير\\s+والتنوير"
-        ),
-        TafsirSourceDefinition.of(
-            "nathm-aldurar",
-            "Nathm al-Durar",
-            "(?iu)\\bnathm\\s+al\\s*durar\\b",
-            "(?u)نظم\\s+الدرر"
-        )
-    );
+    private static final int MAX_CONCURRENT_SEARCHES = 3;
+    private static final int MAX_STEP_ACTIONS = 4;
+    private static final int MAX_CACHE_REFRESHES = 4;
+
+    private static final String PLANNER_TOOLS_PROMPT = """
+        You are the search controller for a Quran.com omni-search agent.
+        Available spaces:
+        - quran: Arabic ayah text and verse references
+        - translation: translated ayah text
+        - tafsir: explanatory commentary
+        - post: community reflections/posts
+        - course: course lessons
+        - article: editorial/article content
+
+        Available tools:
+        - quran_lookup: deterministic Quran reference lookup from local Quran/translation data.
+          Use this when the user gives a surah, ayah, ayah range, Quran reference, or known alias.
+          You must resolve surah names and aliases yourself. Examples:
+          "surah nur 3-4" -> {"surah":24,"start_ayah":3,"end_ayah":4}
+          "an-nur ayah 3" -> {"surah":24,"start_ayah":3,"end_ayah":3}
+          "surah 26" -> {"surah":26,"start_ayah":null,"end_ayah":null}
+          "2:255" or "ayah kursi" -> {"surah":2,"start_ayah":255,"end_ayah":255}
+        - goodmem_search: semantic search over one to three content spaces.
+        """;
+    private static final String PLANNER_ROUTING_PROMPT = """
+        Basic routing rules:
+        - If the query is a Quran reference, surah name/number, ayah, ayah range, or known reference alias, call quran_lookup first.
+        - If queryIntent is VERSE_REFERENCE but it is not resolvable to quran_lookup parameters, start with quran and translation; add tafsir if explanation is implied.
+        - If queryIntent is EXPLANATION, the first search must include tafsir and should not start with post/course/article.
+        - Questions about which ayah or surah was revealed first or last should be treated as EXPLANATION and include tafsir.
+        - If queryIntent is COMMUNITY, the first search should include post.
+        - If queryIntent is LEARNING, the first search should include course or article.
+        - If queryIntent is TOPICAL, start with quran/translation/tafsir unless the wording clearly asks for reflections, courses, or articles.
+        """;
+    private static final String PLANNER_TOOL_INPUT_RULES = """
+        - For quran_lookup, set tool_input.surah to an integer from 1 to 114.
+        - For quran_lookup, set tool_input.start_ayah/end_ayah to integers for a single ayah or range, or null/null for a whole surah.
+        - For quran_lookup, do not put the reference in tool_input.query; use the numeric fields.
+        - For goodmem_search, choose 1 to 3 spaces only.
+        - For goodmem_search, tool_input.query must be non-empty and should usually be a simplified rewrite of the user query.
+        """;
+    private static final String STEP_PLANNER_PROMPT = PLANNER_TOOLS_PROMPT
+        + """
+
+        Return every independent action this step needs in "actions"; they run concurrently and each is logged as its
+        own tool call. For example, a reference that also asks for an explanation can pair quran_lookup with a tafsir
+        goodmem_search, and a topical question can search tafsir and post at once instead of over two steps.
+        """
+        + PLANNER_ROUTING_PROMPT
+        + """
+
+        Basic constraints:
+        - Do not finish on step 1.
+        - Use at most 4 actions per step, at most 3 of them goodmem_search.
+        - finish must be the only action of its step.
+        """
+        + PLANNER_TOOL_INPUT_RULES
+        + """
+        - If noNewResultsStreak is greater than 0, prefer unsearched spaces or a shorter query rewrite before finishing.
+        - Finish only when evidence is already good enough or the useful spaces are exhausted.
+
+        Return STRICT JSON:
+        {"thought":string,"actions":[{"action":"quran_lookup"|"goodmem_search"|"finish","tool_input":{"surah":number|null,"start_ayah":number|null,"end_ayah":number|null,"spaces":[string],"query":string,"limit":number}}],"summary":string}
+        For finish, summary should be a concise high-level synthesis and tool_input may be ignored.
+        """;
+    private static final String SUMMARY_PROMPT = """
+        You are summarizing retrieved Quran.com search evidence.
+        Use only the evidence supplied.
+        Prefer verse references like 2:255 when applicable.
+        When surah metadata is supplied, name the surah by transliteration and Arabic name before summarizing.
+        Mention when evidence comes from tafsir, reflections, courses, or articles.
+        Keep the response concise and factual.
+        """;
+    private static final String PLAN_ONCE_PROMPT = PLANNER_TOOLS_PROMPT
+        + "\nPlan the whole search in one reply: an ordered list of at most maxActions actions. They all run\n"
+        + "without another planning round, independent ones in parallel, so plan every search you expect to need.\n"
+        + PLANNER_ROUTING_PROMPT
+        + """
+
+        Plan constraints:
+        - Use at most one quran_lookup and at most three goodmem_search actions.
+        - Give each goodmem_search different spaces or a different query; never repeat a search.
+        - Do not repeat lookups already listed in toolLog.
+        - Do not plan a finish action; the plan ends after its last action.
+        """
+        + PLANNER_TOOL_INPUT_RULES
+        + """
+
+        Return STRICT JSON:
+        {"thought":string,"actions":[{"action":"quran_lookup"|"goodmem_search","tool_input":{"surah":number|null,"start_ayah":number|null,"end_ayah":number|null,"spaces":[string],"query":string,"limit":number}}]}
+        """;
 
     private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectWriter responseWriter = ResponseEncoding.JSON.responseWriter();
     private final GoodMemClient client;
     private final SpaceRegistry spaceRegistry;
     private final AppConfig config;
     private final ExecutorService executor;
+    private final SpaceBulkheads bulkheads;
     private final OpenAiChatClient openAiClient;
     private final SearchResultAssembler assembler;
     private final QuranTextRepository quranTextRepo;
     private final TranslationRepository translationRepo;
-    private final Cache<SearchCacheKey, Models.SearchResponse> searchCache;
+    private final QuranReferenceParser referenceParser;
+    private final QueryAnalyzer queryAnalyzer = new QueryAnalyzer();
+    private final QueryCanonicalizer queryCanonicalizer;
+    private final PlannerMode defaultPlannerMode;
+    private final Cache<SearchCacheKey, CachedSearchResponse> searchCache;
+    private final NearDuplicateIndex<SearchCacheKey> nearDuplicates;
+    private final CacheFreshness freshness;
+    private final Set<SearchCacheKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final Semaphore refreshPermits = new Semaphore(MAX_CACHE_REFRESHES);
+    private final ThreadFactory refreshThreads;
+    private final Map<SearchCacheKey, InFlightSearch> inFlightSearches = new ConcurrentHashMap<>();
+    private final AdaptiveConcurrencyLimiter admissionLimiter;
+    private final SearchMetrics metrics = new SearchMetrics();
 
     public SearchService(GoodMemClient client, SpaceRegistry spaceRegistry, AppConfig config) {
         this.client = client;
         this.spaceRegistry = spaceRegistry;
         this.config = config;
-        this.executor = Executors.newFixedThreadPool(6);
+        this.executor = config.virtualThreads()
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(6);
+        this.bulkheads = new SpaceBulkheads(config.bulkheadConcurrency(), config.bulkheadQueue(), config.virtualThreads());
         this.openAiClient = new OpenAiChatClient(config);
         this.quranTextRepo = new QuranTextRepository();
         this.translationRepo = new TranslationRepository();
+        this.referenceParser = new QuranReferenceParser(quranTextRepo);
+        this.queryCanonicalizer = new QueryCanonicalizer(referenceParser.transliteratedWords());
+        this.defaultPlannerMode = PlannerMode.parse(config.plannerMode());
         this.assembler = new SearchResultAssembler(client, config, quranTextRepo, translationRepo);
-        this.searchCache = CacheBuilder.newBuilder()
+        this.admissionLimiter = config.admissionControl()
+            ? new AdaptiveConcurrencyLimiter(
+                config.admissionInitialLimit(),
+                config.admissionMinLimit(),
+                config.admissionMaxLimit()
+            )
+            : null;
+        this.nearDuplicates = config.searchCacheNearDuplicates()
+            ? new NearDuplicateIndex<>(config.searchCacheSimilarity(), queryCanonicalizer)
+            : null;
+        this.freshness = new CacheFreshness(
+            config.searchCacheTtl(),
+            config.searchCacheRefreshAhead(),
+            config.searchCacheRefreshAheadHits()
+        );
+        this.refreshThreads = config.virtualThreads()
+            ? Thread.ofVirtual().name("cache-refresh-", 0).factory()
+            : Thread.ofPlatform().name("cache-refresh-", 0).daemon(true).factory();
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
             .maximumSize(SEARCH_CACHE_MAX_SIZE)
-            .recordStats()
-            .build();
+            .recordStats();
+        if (config.searchCacheHardTtl().isPositive()) {
+            cacheBuilder.expireAfterWrite(config.searchCacheHardTtl());
+        }
+        this.searchCache = nearDuplicates == null
+            ? cacheBuilder.build()
+            : cacheBuilder
+                .<SearchCacheKey, CachedSearchResponse>removalListener(removal -> {
+                    if (removal.getCause() != RemovalCause.REPLACED) {
+                        nearDuplicates.remove(removal.getKey());
+                    }
+                })
+                .build();
     }
 
     public Models.SearchResponse search(Models.SearchRequest request) {
@@ -148,7 +223,178 @@ public final class SearchService {
     }
 
     public Models.SearchResponse search(Models.SearchRequest request, SearchEventListener listener) {
+        return search(request, listener, SearchCancellation.none());
+    }
+
+    /**
+     * Run a search that stops early, with {@link SearchCancelledException}, once {@code cancellation}
+     * fires and no other caller is waiting for the same result.
+     */
+    public Models.SearchResponse search(
+        Models.SearchRequest request,
+        SearchEventListener listener,
+        SearchCancellation cancellation
+    ) {
+        return search(request, listener, null, cancellation).response();
+    }
+
+    public TimedSearchResponse searchSerialized(Models.SearchRequest request) {
+        return search(request, SearchEventListener.noop(), null, SearchCancellation.none());
+    }
+
+    public SearchMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Stage histograms, counters and point-in-time gauges in the Prometheus text format.
+     */
+    public String prometheusMetrics() {
+        PrometheusText text = new PrometheusText();
+        metrics.writeTo(text);
+
+        CacheStats stats = searchCache.stats();
+        text.gauge("search_cache_size", "Responses held in the search cache.", searchCache.size());
+        text.gauge("search_cache_hit_ratio", "Search cache hit ratio since start-up.", stats.hitRate());
+        text.counter("search_cache_hits_total", "Search cache hits.", stats.hitCount());
+        text.counter("search_cache_misses_total", "Search cache misses.", stats.missCount());
+        text.counter("search_cache_evictions_total", "Search cache evictions.", stats.evictionCount());
+        if (nearDuplicates != null) {
+            text.gauge("search_cache_near_duplicate_entries", "Cached queries indexed for near-duplicate lookup.", nearDuplicates.size());
+        }
+        text.gauge("search_in_flight", "Distinct searches currently running, after coalescing.", inFlightSearches.size());
+
+        int queueDepth = executor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+        int activeTasks = executor instanceof ThreadPoolExecutor pool ? pool.getActiveCount() : 0;
+        text.gauge("search_executor_queue_depth", "Tasks queued on the shared search executor (always 0 with virtual threads).", queueDepth);
+        text.gauge("search_executor_active_tasks", "Shared search executor threads busy (fixed pool only).", activeTasks);
+        text.header("search_upstream_permit_waiters", "gauge", "Calls waiting for an upstream concurrency permit.");
+        text.sample("search_upstream_permit_waiters", PrometheusText.label("upstream", "goodmem"), client.permitWaiters());
+        text.sample("search_upstream_permit_waiters", PrometheusText.label("upstream", "openai"), openAiClient.permitWaiters());
+        text.header("search_bulkhead_queue_depth", "gauge", "Retrievals queued on each space's bulkhead.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            text.sample("search_bulkhead_queue_depth", PrometheusText.label("space", spaceType.apiName()), bulkheads.queueDepth(spaceType));
+        }
+        text.header("search_bulkhead_active", "gauge", "Retrievals running on each space's bulkhead.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            text.sample("search_bulkhead_active", PrometheusText.label("space", spaceType.apiName()), bulkheads.activeCount(spaceType));
+        }
+        text.header("search_bulkhead_rejected_total", "counter", "Retrievals rejected because a space's bulkhead was full.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            text.sample("search_bulkhead_rejected_total", PrometheusText.label("space", spaceType.apiName()), bulkheads.rejectedCount(spaceType));
+        }
+        text.header("goodmem_hedged_retrievals_total", "counter", "Duplicate GoodMem retrievals sent after the hedge delay.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            text.sample("goodmem_hedged_retrievals_total", PrometheusText.label("space", spaceType.apiName()), client.hedgedRetrievals(spaceType));
+        }
+        text.header("goodmem_hedge_wins_total", "counter", "Hedged GoodMem retrievals answered by the duplicate first.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            text.sample("goodmem_hedge_wins_total", PrometheusText.label("space", spaceType.apiName()), client.hedgeWins(spaceType));
+        }
+        text.header("goodmem_hedge_delay_seconds", "gauge", "Current hedge delay per space; absent until enough latencies are observed.");
+        for (SpaceType spaceType : SpaceType.values()) {
+            Duration delay = client.hedgeDelay(spaceType);
+            if (delay != null) {
+                text.sample("goodmem_hedge_delay_seconds", PrometheusText.label("space", spaceType.apiName()), delay.toNanos() / 1e9);
+            }
+        }
+
+        if (admissionLimiter != null) {
+            text.gauge("search_admission_limit", "Current adaptive admission limit.", admissionLimiter.limit());
+            text.gauge("search_admission_in_flight", "Admitted uncached searches in flight.", admissionLimiter.inFlight());
+            text.counter("search_admission_rejected_total", "Searches rejected with 429.", admissionLimiter.rejectedCount());
+        }
+        return text.toString();
+    }
+
+    public static String prometheusContentType() {
+        return PrometheusText.CONTENT_TYPE;
+    }
+
+    public BatchOutcome searchBatch(Models.BatchSearchRequest batch, BatchListener listener) throws InterruptedException {
+        List<Models.SearchRequest> requests = batch == null || batch.requests() == null ? List.of() : batch.requests();
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("requests is required");
+        }
+        if (requests.size() > config.batchMaxRequests()) {
+            throw new IllegalArgumentException("batch exceeds " + config.batchMaxRequests() + " requests");
+        }
+        int maxParallelism = Math.max(1, config.batchParallelism());
+        int parallelism = batch.parallelism() != null && batch.parallelism() > 0
+            ? Math.min(batch.parallelism(), maxParallelism)
+            : maxParallelism;
+
+        String batchId = "batch-" + BATCH_SEQUENCE.incrementAndGet();
+        logger.info("[{}] batch.start requests={} parallelism={}", batchId, requests.size(), parallelism);
+        RetrievalMemo retrievals = new RetrievalMemo();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicLong failed = new AtomicLong();
+        ExecutorService batchExecutor = config.virtualThreads()
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int index = 0; index < requests.size(); index++) {
+                int requestIndex = index;
+                Models.SearchRequest request = requests.get(index);
+                permits.acquire();
+                batchExecutor.execute(() -> {
+                    try {
+                        listener.onResponse(requestIndex, search(request, SearchEventListener.noop(), retrievals, SearchCancellation.none()).response());
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                        logger.warn("[{}] batch.item.failed index={}", batchId, requestIndex, ex);
+                        listener.onError(requestIndex, ex.getMessage() == null ? "Unexpected server error" : ex.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(parallelism);
+        } finally {
+            batchExecutor.shutdownNow();
+        }
+
+        BatchOutcome outcome = new BatchOutcome(
+            requests.size(),
+            (int) failed.get(),
+            retrievals.performedCount(),
+            retrievals.sharedCount()
+        );
+        logger.info(
+            "[{}] batch.done requests={} failed={} retrievals={} sharedRetrievals={}",
+            batchId,
+            outcome.requests(),
+            outcome.failed(),
+            outcome.retrievals(),
+            outcome.sharedRetrievals()
+        );
+        return outcome;
+    }
+
+    private TimedSearchResponse search(
+        Models.SearchRequest request,
+        SearchEventListener listener,
+        RetrievalMemo retrievals,
+        SearchCancellation cancellation
+    ) {
+        return search(request, listener, retrievals, cancellation, false);
+    }
+
+    /**
+     * Serve a search from the cache, join an identical search in flight, or run it. With
+     * {@code revalidate} the cache is bypassed and the fresh response replaces the entry; a revalidation
+     * that finds the same search already in flight does nothing and returns {@code null}.
+     */
+    private TimedSearchResponse search(
+        Models.SearchRequest request,
+        SearchEventListener listener,
+        RetrievalMemo retrievals,
+        SearchCancellation cancellation,
+        boolean revalidate
+    ) {
         String traceId = "search-" + SEARCH_SEQUENCE.incrementAndGet();
+        SearchTimings timings = new SearchTimings(metrics);
+        boolean includeTimings = Boolean.TRUE.equals(request.timings());
         String query = request.query() == null ? "" : request.query().trim();
         if (query.isBlank()) {
             throw new IllegalArgumentException("query is required");
@@ -162,32 +408,292 @@ public final class SearchService {
         requestedSpaces.add(SpaceType.QURAN);
         int maxSteps = resolveMaxSteps(request.maxSteps());
         int requestedLimit = request.limit() != null && request.limit() > 0 ? request.limit() : 8;
-        SearchCacheKey cacheKey = SearchCacheKey.from(query, language, requestedSpaces, requestedLimit, maxSteps);
-        Models.SearchResponse cachedResponse = searchCache.getIfPresent(cacheKey);
+        Duration budget = resolveTimeout(request.timeoutMs());
+        PlannerMode plannerMode = request.planner() == null || request.planner().isBlank()
+            ? defaultPlannerMode
+            : PlannerMode.parse(request.planner());
+        boolean fast = Boolean.TRUE.equals(request.fast());
+        long lookupStarted = System.nanoTime();
+        SearchCacheKey cacheKey = SearchCacheKey.from(
+            queryCanonicalizer.canonicalize(query),
+            language,
+            requestedSpaces,
+            requestedLimit,
+            maxSteps,
+            plannerMode,
+            fast
+        );
+        CachedSearchResponse cachedResponse = revalidate ? null : searchCache.getIfPresent(cacheKey);
+        NearDuplicateIndex.Match<SearchCacheKey> nearDuplicate = null;
+        if (cachedResponse == null && nearDuplicates != null && !revalidate) {
+            nearDuplicate = nearDuplicates.find(cacheKey.scope(), cacheKey.query());
+            cachedResponse = nearDuplicate == null ? null : searchCache.getIfPresent(nearDuplicate.key());
+            if (cachedResponse != null && freshness.isStale(cachedResponse)) {
+                cachedResponse = null;
+            }
+        }
+        boolean approximate = cachedResponse != null && nearDuplicate != null;
+        CacheFreshness.State state = cachedResponse == null || approximate ? null : freshness.onHit(cachedResponse);
+        timings.record(
+            "cache_lookup",
+            cachedResponse == null ? "miss" : approximate ? "approximate" : state == CacheFreshness.State.STALE ? "stale" : "hit",
+            null,
+            System.nanoTime() - lookupStarted
+        );
+        if (approximate) {
+            metrics.recordApproximateCacheHit();
+            logger.info(
+                "[{}] search.cache.approximate_hit key={} matched={} similarity={}",
+                traceId,
+                cacheKey,
+                nearDuplicate.key().query(),
+                String.format(Locale.ROOT, "%.2f", nearDuplicate.similarity())
+            );
+            listener.onStatus("Serving cached results for a similar query");
+            return new TimedSearchResponse(cachedResponse, timings.snapshot(true), includeTimings, true, query);
+        }
         if (cachedResponse != null) {
+            recordCacheHit(query, cachedResponse);
             logger.info(
-                "[{}] search.cache.hit key={} stats={}",
+                "[{}] search.cache.hit key={} freshness={} stats={}",
                 traceId,
                 cacheKey,
+                state,
                 searchCache.stats()
             );
+            refreshIfDue(traceId, cacheKey, request, state);
             listener.onStatus("Serving cached results");
-            return cachedResponse;
+            return new TimedSearchResponse(cachedResponse, timings.snapshot(true), includeTimings, false, query);
+        }
+
+        InFlightSearch flight = new InFlightSearch(traceId);
+        while (true) {
+            InFlightSearch leader = inFlightSearches.putIfAbsent(cacheKey, flight);
+            if (leader == null) {
+                break;
+            }
+            if (revalidate) {
+                logger.info("[{}] search.cache.refresh.skip reason=in_flight key={}", traceId, cacheKey);
+                return null;
+            }
+            if (!leader.join(listener)) {
+                inFlightSearches.remove(cacheKey, leader);
+                continue;
+            }
+            logger.info("[{}] search.coalesced key={} leader={}", traceId, cacheKey, leader.traceId());
+            Runnable unregister = cancellation.onCancel(() -> leader.abandon(listener));
+            long waitStarted = System.nanoTime();
+            try {
+                CachedSearchResponse shared = leader.await(cancellation);
+                timings.record("coalesced_wait", null, null, System.nanoTime() - waitStarted);
+                return new TimedSearchResponse(shared, timings.snapshot(false), includeTimings, false, query);
+            } finally {
+                unregister.run();
+                if (!cancellation.isCancelled()) {
+                    leader.leave(listener);
+                }
+            }
+        }
+
+        flight.join(listener);
+        flight.run().onCancel(() -> inFlightSearches.remove(cacheKey, flight));
+        Runnable unregister = cancellation.onCancel(() -> flight.abandon(listener));
+        try {
+            CachedSearchResponse response = revalidate ? null : searchCache.getIfPresent(cacheKey);
+            boolean cacheHit = response != null;
+            if (cacheHit) {
+                recordCacheHit(query, response);
+                CacheFreshness.State hitState = freshness.onHit(response);
+                logger.info(
+                    "[{}] search.cache.hit key={} freshness={} stats={}",
+                    traceId,
+                    cacheKey,
+                    hitState,
+                    searchCache.stats()
+                );
+                refreshIfDue(traceId, cacheKey, request, hitState);
+                listener.onStatus("Serving cached results");
+            } else {
+                logger.info(
+                    "[{}] search.cache.{} key={} stats={}",
+                    traceId,
+                    revalidate ? "refresh" : "miss",
+                    cacheKey,
+                    searchCache.stats()
+                );
+                AdaptiveConcurrencyLimiter.Permit permit = admit(traceId);
+                boolean succeeded = false;
+                Runnable stopInterrupting = flight.run().interruptOnCancel();
+                try {
+                    SearchDeadline deadline = SearchDeadline.after(budget);
+                    long agentStarted = System.nanoTime();
+                    Models.SearchResponse result = runAgent(
+                        traceId,
+                        query,
+                        language,
+                        requestedSpaces,
+                        maxSteps,
+                        requestedLimit,
+                        plannerMode,
+                        fast,
+                        flight,
+                        retrievals,
+                        deadline,
+                        flight.run(),
+                        timings
+                    );
+                    long serializeStarted = System.nanoTime();
+                    timings.record("agent", null, null, serializeStarted - agentStarted);
+                    response = CachedSearchResponse.of(responseWriter, result, config.searchCacheGzip());
+                    timings.record("serialize", null, null, System.nanoTime() - serializeStarted);
+                    succeeded = true;
+                } finally {
+                    boolean cancelled = flight.run().isCancelled();
+                    stopInterrupting.run();
+                    if (permit != null && !succeeded && cancelled) {
+                        permit.cancel();
+                    } else if (permit != null) {
+                        permit.release(succeeded);
+                    }
+                }
+                Models.AgentMetadata agent = response.response().agent();
+                if (agent.deadlineTruncated() || agent.incomplete()) {
+                    logger.info(
+                        "[{}] search.cache.skip reason={} key={}",
+                        traceId,
+                        agent.deadlineTruncated() ? "deadline_truncated" : "incomplete",
+                        cacheKey
+                    );
+                } else {
+                    searchCache.put(cacheKey, response);
+                    if (nearDuplicates != null) {
+                        nearDuplicates.put(cacheKey, cacheKey.scope(), cacheKey.query());
+                    }
+                    logger.info("[{}] search.cache.store key={} stats={}", traceId, cacheKey, searchCache.stats());
+                }
+            }
+            flight.complete(response);
+            return new TimedSearchResponse(response, timings.snapshot(cacheHit), includeTimings, false, query);
+        } catch (RuntimeException | Error ex) {
+            flight.fail(ex);
+            throw ex;
+        } finally {
+            unregister.run();
+            if (!cancellation.isCancelled()) {
+                flight.leave(listener);
+            }
+            inFlightSearches.remove(cacheKey, flight);
+        }
+    }
+
+    /**
+     * Start one background search that replaces a stale or soon-to-expire entry; the caller has
+     * already been served the current one. At most one refresh runs per key, and at most
+     * {@code MAX_CACHE_REFRESHES} overall, so refreshes never crowd out live searches.
+     */
+    private void refreshIfDue(
+        String traceId,
+        SearchCacheKey cacheKey,
+        Models.SearchRequest request,
+        CacheFreshness.State state
+    ) {
+        if (state == CacheFreshness.State.STALE) {
+            metrics.recordStaleCacheHit();
+        }
+        if (state == CacheFreshness.State.FRESH || !refreshing.add(cacheKey)) {
+            return;
+        }
+        if (!refreshPermits.tryAcquire()) {
+            refreshing.remove(cacheKey);
+            logger.info("[{}] search.cache.refresh.skip reason=busy key={}", traceId, cacheKey);
+            return;
+        }
+        metrics.recordCacheRefresh(state);
+        logger.info("[{}] search.cache.refresh.start key={} reason={}", traceId, cacheKey, state);
+        Models.SearchRequest refresh = new Models.SearchRequest(
+            request.query(),
+            request.spaces(),
+            request.language(),
+            request.limit(),
+            request.maxSteps(),
+            request.timeoutMs(),
+            false,
+            request.planner(),
+            request.fast()
+        );
+        refreshThreads.newThread(() -> {
+            try {
+                search(refresh, SearchEventListener.noop(), null, SearchCancellation.none(), true);
+            } catch (RuntimeException ex) {
+                metrics.recordCacheRefreshFailure();
+                logger.warn("[{}] search.cache.refresh.failed key={}", traceId, cacheKey, ex);
+            } finally {
+                refreshPermits.release();
+                refreshing.remove(cacheKey);
+            }
+        }).start();
+    }
+
+    /**
+     * Count hits that only canonicalization made possible: the cached response was produced for a
+     * query that differs from this one by more than case and surrounding whitespace.
+     */
+    private void recordCacheHit(String query, CachedSearchResponse cached) {
+        String cachedQuery = cached.response().query();
+        if (cachedQuery == null || !cachedQuery.trim().toLowerCase(Locale.ROOT).equals(query.toLowerCase(Locale.ROOT))) {
+            metrics.recordCanonicalCacheHit();
         }
+    }
 
-        logger.info("[{}] search.cache.miss key={} stats={}", traceId, cacheKey, searchCache.stats());
+    private AdaptiveConcurrencyLimiter.Permit admit(String traceId) {
+        if (admissionLimiter == null) {
+            return null;
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = admissionLimiter.tryAcquire();
+        if (permit == null) {
+            int retryAfter = admissionLimiter.retryAfterSeconds();
+            logger.warn(
+                "[{}] search.rejected limit={} inFlight={} retryAfter={}s rejected={}",
+                traceId,
+                admissionLimiter.limit(),
+                admissionLimiter.inFlight(),
+                retryAfter,
+                admissionLimiter.rejectedCount()
+            );
+            throw new SearchOverloadedException(retryAfter);
+        }
+        return permit;
+    }
+
+    private Models.SearchResponse runAgent(
+        String traceId,
+        String query,
+        String language,
+        EnumSet<SpaceType> requestedSpaces,
+        int maxSteps,
+        int requestedLimit,
+        PlannerMode plannerMode,
+        boolean fast,
+        SearchEventListener listener,
+        RetrievalMemo retrievals,
+        SearchDeadline deadline,
+        SearchCancellation cancellation,
+        SearchTimings timings
+    ) {
         Map<SpaceType, String> spaceIds = spaceRegistry.resolve();
-        QueryIntent queryIntent = inferIntent(query);
-        TafsirSourceConstraint tafsirSource = detectTafsirSource(query);
+        QueryAnalyzer.Analysis analysis = queryAnalyzer.analyze(query);
+        QueryIntent queryIntent = analysis.intent();
+        TafsirSourceConstraint tafsirSource = analysis.tafsirSource();
 
         logger.info(
-            "[{}] search.start query={} language={} requestedSpaces={} maxSteps={} requestedLimit={} intent={} tafsirSource={} plannerConfigured={} overviewConfigured={}",
+            "[{}] search.start query={} language={} requestedSpaces={} maxSteps={} requestedLimit={} budgetMs={} intent={} tafsirSource={} plannerConfigured={} overviewConfigured={}",
             traceId,
             quoted(query),
             language,
             requestedSpaces,
             maxSteps,
             requestedLimit,
+            deadline.budget().toMillis(),
             queryIntent,
             tafsirSource == null ? null : tafsirSource.label(),
             openAiClient.isConfigured(),
@@ -195,28 +701,190 @@ public final class SearchService {
         );
         listener.onStatus("Agent started");
 
-        Map<String, MemoryHit> bestHits = new LinkedHashMap<>();
+        HitIndex bestHits = new HitIndex();
         List<Models.AgentToolCall> toolCalls = new ArrayList<>();
         EnumSet<SpaceType> searchedSpaces = EnumSet.noneOf(SpaceType.class);
         boolean usedLlmPlanner = false;
         boolean usedHeuristicFallback = false;
         int noNewResultsStreak = 0;
         String plannerSummary = null;
+        PartialResultTracker partialResults = new PartialResultTracker();
+        MarginalGainPolicy earlyStop = config.earlyStop()
+            ? new MarginalGainPolicy(config.earlyStopMinGain(), config.earlyStopMinSteps(), requestedLimit)
+            : null;
+
+        int firstPlannerStep = 1;
+        boolean finished = false;
+        boolean resolvedLocally = false;
+        boolean incomplete = false;
+        PlannerMode plannerModeUsed = PlannerMode.STEP;
+        if (config.localReferenceParser()) {
+            long lookupStarted = System.nanoTime();
+            QuranReferenceParser.ParsedQuery parsed = referenceParser.parse(query);
+            List<DirectQuranLookup> directLookups = new ArrayList<>();
+            for (QuranReferenceParser.Reference reference : parsed.references()) {
+                directLookups.add(lookupQuranReference(
+                    new QuranReference(reference.surah(), reference.startAyah(), reference.endAyah()),
+                    requestedSpaces,
+                    requestedLimit
+                ));
+            }
+            if (!directLookups.isEmpty()) {
+                timings.record("quran_lookup", "parser", 1, System.nanoTime() - lookupStarted);
+                logger.info(
+                    "[{}] reference.parsed references={} exact={} intent={}",
+                    traceId,
+                    parsed.references(),
+                    parsed.exact(),
+                    queryIntent
+                );
+                for (DirectQuranLookup directLookup : directLookups) {
+                    recordDirectLookup(
+                        traceId,
+                        1,
+                        "Resolved Quran reference locally",
+                        directLookup,
+                        bestHits,
+                        searchedSpaces,
+                        toolCalls,
+                        listener
+                    );
+                }
+                publishPartialResults(1, language, requestedSpaces, bestHits, partialResults, listener);
+                firstPlannerStep = 2;
+                boolean anyHits = directLookups.stream().anyMatch(lookup -> !lookup.hits().isEmpty());
+                if (parsed.exact() && anyHits && directLookupSatisfiesQuery(queryIntent, tafsirSource)) {
+                    finished = true;
+                    resolvedLocally = true;
+                    plannerSummary = directLookupSummary(directLookups);
+                    listener.onStatus("Agent finished evidence collection");
+                }
+            }
+        }
+
+        if (plannerMode == PlannerMode.ONCE && !finished && openAiClient.isConfigured() && firstPlannerStep <= maxSteps) {
+            throwIfCancelled(traceId, cancellation, maxSteps - firstPlannerStep + 1, true);
+            SpeculativeRetrieval speculation = startSpeculation(
+                traceId,
+                firstPlannerStep,
+                chooseToolInput(analysis, requestedSpaces, searchedSpaces, requestedLimit, noNewResultsStreak),
+                spaceIds,
+                tafsirSource,
+                retrievals,
+                deadline,
+                cancellation,
+                timings
+            );
+            long planStarted = System.nanoTime();
+            List<PlannerDecision> plan = planOnce(
+                traceId,
+                analysis,
+                requestedSpaces,
+                toolCalls,
+                bestHits,
+                firstPlannerStep,
+                MAX_STEP_ACTIONS,
+                requestedLimit,
+                deadline
+            );
+            timings.record("plan", "llm_once", firstPlannerStep, System.nanoTime() - planStarted);
+            if (plan == null) {
+                settleSpeculation(traceId, speculation, bestHits, searchedSpaces);
+            } else {
+                usedLlmPlanner = true;
+                plannerModeUsed = PlannerMode.ONCE;
+                // The plan's actions run concurrently, so like alongside actions they share one step and
+                // leave the remaining steps to the step-by-step fallback.
+                List<StepAction> planned = new ArrayList<>();
+                for (PlannerDecision decision : plan) {
+                    planned.add(prepareAction(
+                        traceId,
+                        firstPlannerStep,
+                        decision,
+                        decision.action(),
+                        decision.toolInput(),
+                        false,
+                        null,
+                        analysis,
+                        requestedSpaces,
+                        searchedSpaces,
+                        requestedLimit,
+                        0,
+                        tafsirSource
+                    ));
+                }
+                StepOutcome planOutcome = runActions(
+                    traceId,
+                    planned,
+                    requestedSpaces,
+                    requestedLimit,
+                    spaceIds,
+                    tafsirSource,
+                    retrievals,
+                    deadline,
+                    cancellation,
+                    timings,
+                    speculation,
+                    bestHits,
+                    searchedSpaces,
+                    toolCalls,
+                    listener
+                );
+                incomplete = incomplete || planOutcome.shed();
+                settleSpeculation(traceId, speculation, bestHits, searchedSpaces);
+                publishPartialResults(firstPlannerStep, language, requestedSpaces, bestHits, partialResults, listener);
+                firstPlannerStep++;
+                if (bestHits.isEmpty()) {
+                    logger.info("[{}] plan.once.empty actions={}; planning step by step", traceId, plan.size());
+                } else {
+                    finished = true;
+                    listener.onStatus("Agent finished evidence collection");
+                }
+            }
+        }
 
-        for (int step = 1; step <= maxSteps; step++) {
-            List<MemoryHit> aggregatedHits = sortedHits(bestHits.values());
+        for (int step = firstPlannerStep; !finished && step <= maxSteps; step++) {
+            throwIfCancelled(traceId, cancellation, maxSteps - step + 1, true);
+            if (step > 1 && !deadline.hasAtLeast(config.deadlineMinCallBudget())) {
+                deadline.markTruncated();
+                logger.info(
+                    "[{}] search.deadline.stop step={} remainingMs={}",
+                    traceId,
+                    step,
+                    deadline.remaining().toMillis()
+                );
+                listener.onStatus("Time budget reached; returning the evidence gathered so far");
+                break;
+            }
+            SpeculativeRetrieval speculation = step == firstPlannerStep
+                ? startSpeculation(
+                    traceId,
+                    step,
+                    chooseToolInput(analysis, requestedSpaces, searchedSpaces, requestedLimit, noNewResultsStreak),
+                    spaceIds,
+                    tafsirSource,
+                    retrievals,
+                    deadline,
+                    cancellation,
+                    timings
+                )
+                : null;
+            long planStarted = System.nanoTime();
             PlanningOutcome planning = planStep(
                 traceId,
-                query,
+                analysis,
                 requestedSpaces,
                 searchedSpaces,
                 toolCalls,
-                aggregatedHits,
+                bestHits,
                 step,
                 maxSteps,
                 requestedLimit,
-                noNewResultsStreak
+                noNewResultsStreak,
+                deadline,
+                cancellation
             );
+            timings.record("plan", planning.usedLlmPlanner() ? "llm" : "heuristic", step, System.nanoTime() - planStarted);
             usedLlmPlanner = usedLlmPlanner || planning.usedLlmPlanner();
             usedHeuristicFallback = usedHeuristicFallback || planning.usedHeuristicFallback();
 
@@ -239,244 +907,236 @@ public final class SearchService {
             boolean forced = false;
             String forcedReason = null;
 
-            if ("finish".equals(action) && step == 1 && aggregatedHits.isEmpty()) {
+            if ("finish".equals(action) && step == 1 && bestHits.isEmpty()) {
                 forced = true;
                 forcedReason = "Need at least one retrieval step before finishing";
                 action = "goodmem_search";
                 toolInput = chooseToolInput(
-                    query,
+                    analysis,
                     requestedSpaces,
                     searchedSpaces,
                     requestedLimit,
-                    0,
-                    queryIntent
+                    0
                 );
             }
 
             if ("finish".equals(action)) {
+                settleSpeculation(traceId, speculation, bestHits, searchedSpaces);
                 plannerSummary = blankToNull(decision.summary());
                 listener.onStatus("Agent finished evidence collection");
                 break;
             }
 
-            if ("quran_lookup".equals(action)) {
-                QuranLookupInput quranLookupInput = decision.quranLookupInput();
-                if (quranLookupInput == null || !quranLookupInput.isValid()) {
-                    forced = true;
-                    forcedReason = "Planner returned invalid quran_lookup parameters";
-                    action = "goodmem_search";
-                    toolInput = chooseToolInput(
-                        query,
-                        requestedSpaces,
-                        searchedSpaces,
-                        requestedLimit,
-                        noNewResultsStreak,
-                        queryIntent
-                    );
-                } else {
-                    QuranReference reference = new QuranReference(
-                        quranLookupInput.surah(),
-                        quranLookupInput.startAyah(),
-                        quranLookupInput.endAyah()
-                    );
-                    DirectQuranLookup directLookup = lookupQuranReference(reference, requestedSpaces, requestedLimit);
-                    listener.onStatus("Step " + step + ": direct Quran lookup for " + directLookup.label());
-                    int newResultCount = mergeHits(bestHits, directLookup.hits());
-                    if (newResultCount == 0) {
-                        noNewResultsStreak += 1;
-                    } else {
-                        noNewResultsStreak = 0;
-                    }
-                    searchedSpaces.addAll(directLookup.spaces());
-                    logger.info(
-                        "[{}] quran_lookup.done step={} reference={} spaces={} hits={} newResults={} previews={}",
-                        traceId,
-                        step,
-                        reference,
-                        directLookup.spaces(),
-                        directLookup.hits().size(),
-                        newResultCount,
-                        previewHitsForLog(directLookup.hits(), 12)
-                    );
-
-                    Models.AgentToolCall directToolCall = new Models.AgentToolCall(
-                        step,
-                        blankToNull(decision.thought()),
-                        action,
-                        directLookup.label(),
-                        directLookup.spaces().stream().map(SpaceType::apiName).collect(Collectors.toList()),
-                        directLookup.limit(),
-                        directLookup.hits().size(),
-                        newResultCount,
-                        false,
-                        null,
-                        previewHits(directLookup.hits(), 5)
-                    );
-                    toolCalls.add(directToolCall);
-                    listener.onToolCall(directToolCall);
-
-                    if (!directLookup.hits().isEmpty() && directLookupSatisfiesQuery(queryIntent, tafsirSource)) {
-                        plannerSummary = directLookupSummary(directLookup);
-                        listener.onStatus("Agent finished evidence collection");
-                        break;
-                    }
+            List<StepAction> stepActions = new ArrayList<>();
+            stepActions.add(prepareAction(
+                traceId,
+                step,
+                decision,
+                action,
+                toolInput,
+                forced,
+                forcedReason,
+                analysis,
+                requestedSpaces,
+                searchedSpaces,
+                requestedLimit,
+                noNewResultsStreak,
+                tafsirSource
+            ));
+            int searchCount = stepActions.get(0).reference() == null ? 1 : 0;
+            for (PlannerDecision alongside : planning.alongside()) {
+                boolean search = "goodmem_search".equals(alongside.action());
+                boolean lookup = "quran_lookup".equals(alongside.action())
+                    && alongside.quranLookupInput() != null
+                    && alongside.quranLookupInput().isValid();
+                if ((!search && !lookup) || (search && searchCount >= MAX_CONCURRENT_SEARCHES)) {
+                    logger.info("[{}] plan.alongside.dropped step={} action={}", traceId, step, alongside.action());
                     continue;
                 }
-            }
-
-            if (toolInput.spaces().isEmpty()) {
-                forced = true;
-                forcedReason = "Planner returned no spaces; using heuristic space selection";
-                toolInput = chooseToolInput(
-                    query,
+                searchCount += search ? 1 : 0;
+                stepActions.add(prepareAction(
+                    traceId,
+                    step,
+                    alongside,
+                    alongside.action(),
+                    alongside.toolInput(),
+                    false,
+                    null,
+                    analysis,
                     requestedSpaces,
                     searchedSpaces,
                     requestedLimit,
                     noNewResultsStreak,
-                    queryIntent
-                );
+                    tafsirSource
+                ));
             }
 
-            ToolInputTightening tightening = tightenPlannerToolInput(
-                toolInput,
-                query,
-                queryIntent,
+            StepOutcome outcome = runActions(
+                traceId,
+                stepActions,
                 requestedSpaces,
-                step
+                requestedLimit,
+                spaceIds,
+                tafsirSource,
+                retrievals,
+                deadline,
+                cancellation,
+                timings,
+                speculation,
+                bestHits,
+                searchedSpaces,
+                toolCalls,
+                listener
             );
-            if (tightening.reason() != null) {
-                forced = true;
-                forcedReason = combineReasons(forcedReason, tightening.reason());
-                toolInput = tightening.toolInput();
-                logger.info(
-                    "[{}] plan.tightened step={} reason={} toolQuery={} spaces={} limit={}",
-                    traceId,
-                    step,
-                    forcedReason,
-                    quoted(toolInput.query()),
-                    toolInput.spaces(),
-                    toolInput.limit()
-                );
-            }
-
-            if (noNewResultsStreak > 0 && searchedSpaces.containsAll(toolInput.spaces())) {
-                List<SpaceType> unexplored = requestedSpaces.stream()
-                    .filter(space -> !searchedSpaces.contains(space))
-                    .collect(Collectors.toList());
-                if (!unexplored.isEmpty()) {
-                    forced = true;
-                    forcedReason = combineReasons(forcedReason, "Exploring spaces not yet searched");
-                    toolInput = new ToolInput(unexplored, toolInput.query(), toolInput.limit());
-                }
-            }
-
-            if (tafsirSource != null && toolInput.spaces().contains(SpaceType.TAFSIR)) {
-                forced = true;
-                forcedReason = combineReasons(
-                    forcedReason,
-                    "Applied tafsir source filter for " + tafsirSource.label()
-                );
-            }
-
-            String toolSpaces = toolInput.spaces().stream()
-                .map(SpaceType::apiName)
-                .collect(Collectors.joining(", "));
-            listener.onStatus("Step " + step + ": searching " + toolSpaces);
-            List<MemoryHit> hits = executeTool(traceId, step, toolInput, spaceIds, tafsirSource);
-            int newResultCount = mergeHits(bestHits, hits);
+            throwIfCancelled(traceId, cancellation, maxSteps - step, true);
+            incomplete = incomplete || outcome.shed();
+            int newResultCount = outcome.newResultCount() + settleSpeculation(traceId, speculation, bestHits, searchedSpaces);
             if (newResultCount == 0) {
                 noNewResultsStreak += 1;
             } else {
                 noNewResultsStreak = 0;
             }
-            searchedSpaces.addAll(toolInput.spaces());
             logger.info(
-                "[{}] tool.merged step={} hits={} newResults={} noNewResultsStreak={} searchedSpaces={} aggregatePreviews={}",
+                "[{}] tool.merged step={} actions={} hits={} newResults={} noNewResultsStreak={} searchedSpaces={} aggregatePreviews={}",
                 traceId,
                 step,
-                hits.size(),
+                stepActions.size(),
+                outcome.hitCount(),
                 newResultCount,
                 noNewResultsStreak,
                 searchedSpaces,
-                previewHitsForLog(sortedHits(bestHits.values()), 10)
+                previewHitsForLog(bestHits.top(10), 10)
             );
+            publishPartialResults(step, language, requestedSpaces, bestHits, partialResults, listener);
 
-            Models.AgentToolCall toolCall = new Models.AgentToolCall(
-                step,
-                blankToNull(decision.thought()),
-                action,
-                toolInput.query(),
-                toolInput.spaces().stream().map(SpaceType::apiName).collect(Collectors.toList()),
-                toolInput.limit(),
-                hits.size(),
-                newResultCount,
-                forced,
-                forcedReason,
-                previewHits(hits, 5)
-            );
-            toolCalls.add(toolCall);
-            listener.onToolCall(toolCall);
+            boolean lookupHits = outcome.lookups().stream().anyMatch(lookup -> !lookup.hits().isEmpty());
+            if (lookupHits && directLookupSatisfiesQuery(queryIntent, tafsirSource)) {
+                plannerSummary = directLookupSummary(outcome.lookups());
+                listener.onStatus("Agent finished evidence collection");
+                break;
+            }
 
             if (step == maxSteps) {
                 break;
             }
+
+            if (earlyStop != null) {
+                MarginalGainPolicy.Verdict verdict = earlyStop.evaluate(bestHits.sorted());
+                logger.info(
+                    "[{}] search.gain step={} churn={} scoreGain={}",
+                    traceId,
+                    step,
+                    String.format(Locale.ROOT, "%.3f", verdict.churn()),
+                    String.format(Locale.ROOT, "%.3f", verdict.scoreGain())
+                );
+                if (verdict.stop() && searchedSpaces.containsAll(requestedSpaces)) {
+                    markStepStopped(toolCalls, step, verdict.reason());
+                    metrics.recordEarlyStop(maxSteps - step);
+                    logger.info(
+                        "[{}] search.early_stop step={} plannerStepsSkipped={} reason={}",
+                        traceId,
+                        step,
+                        maxSteps - step,
+                        quoted(verdict.reason())
+                    );
+                    listener.onStatus("Further steps are unlikely to change the results; finishing early");
+                    break;
+                }
+            }
         }
 
         listener.onStatus("Assembling verse-centric results");
-        List<MemoryHit> aggregatedHits = sortedHits(bestHits.values());
-        Models.AiOverview aiOverview = buildOverview(
+        List<MemoryHit> aggregatedHits = bestHits.sorted();
+        logger.info(
+            "[{}] search.assemble aggregatedHits={} finalPreviews={}",
             traceId,
-            query,
-            requestedSpaces,
-            searchedSpaces,
-            spaceIds,
-            aggregatedHits,
-            plannerSummary
+            aggregatedHits.size(),
+            previewHitsForLog(bestHits.top(12), 12)
         );
+        int finalStep = lastStep(toolCalls);
+        Future<Models.SearchResponse> assembly = executor.submit(() -> {
+            long assembleStarted = System.nanoTime();
+            Models.SearchResponse response = assembler.assemble(
+                traceId,
+                query,
+                language,
+                requestedSpaces,
+                spaceIds,
+                aggregatedHits,
+                null,
+                toolCalls,
+                null,
+                deadline
+            );
+            timings.record("assemble", null, null, System.nanoTime() - assembleStarted);
+            List<Models.ConsolidatedAyahResult> finalDelta = partialResults.delta(response.ayahResults());
+            if (!finalDelta.isEmpty()) {
+                listener.onPartialResults(new Models.PartialResults(finalStep, finalDelta, partialResults.size()));
+            }
+            return response;
+        });
+        Runnable untrackAssembly = cancellation.track(assembly, () -> { });
+
+        Models.AiOverview aiOverview;
+        Models.SearchResponse assembled;
+        try {
+            aiOverview = buildOverview(
+                traceId,
+                query,
+                requestedSpaces,
+                searchedSpaces,
+                spaceIds,
+                aggregatedHits,
+                plannerSummary,
+                fast,
+                resolvedLocally,
+                new OverviewStream(listener),
+                deadline,
+                cancellation,
+                timings
+            );
+            assembled = awaitAssembly(traceId, assembly, cancellation);
+        } finally {
+            untrackAssembly.run();
+            assembly.cancel(true);
+        }
+        throwIfCancelled(traceId, cancellation, 0, false);
         Models.AgentMetadata agentMetadata = new Models.AgentMetadata(
             openAiClient.isConfigured() ? "llm" : "heuristic",
             openAiClient.isConfigured() ? config.plannerModel() : null,
-            toolCalls.size(),
+            plannerModeUsed.apiName(),
+            lastStep(toolCalls),
             usedLlmPlanner,
-            usedHeuristicFallback
-        );
-        logger.info(
-            "[{}] search.assemble aggregatedHits={} finalPreviews={}",
-            traceId,
-            aggregatedHits.size(),
-            previewHitsForLog(aggregatedHits, 12)
-        );
-        Models.SearchResponse response = assembler.assemble(
-            traceId,
-            query,
-            language,
-            requestedSpaces,
-            spaceIds,
-            aggregatedHits,
-            aiOverview,
-            toolCalls,
-            agentMetadata
+            usedHeuristicFallback,
+            deadline.truncated(),
+            incomplete,
+            false,
+            null
         );
-        searchCache.put(cacheKey, response);
-        logger.info("[{}] search.cache.store key={} stats={}", traceId, cacheKey, searchCache.stats());
-        return response;
+        if (deadline.truncated()) {
+            logger.info("[{}] search.deadline.truncated budgetMs={}", traceId, deadline.budget().toMillis());
+        }
+        return completeResponse(assembled, aiOverview, agentMetadata);
     }
 
     public void shutdown() {
         executor.shutdownNow();
+        bulkheads.shutdownNow();
     }
 
     private PlanningOutcome planStep(
         String traceId,
-        String query,
+        QueryAnalyzer.Analysis analysis,
         EnumSet<SpaceType> requestedSpaces,
         EnumSet<SpaceType> searchedSpaces,
         List<Models.AgentToolCall> toolCalls,
-        List<MemoryHit> aggregatedHits,
+        HitIndex bestHits,
         int step,
         int maxSteps,
         int requestedLimit,
-        int noNewResultsStreak
+        int noNewResultsStreak,
+        SearchDeadline deadline,
+        SearchCancellation cancellation
     ) {
         logger.info(
             "[{}] plan.step step={} maxSteps={} searchedSpaces={} requestedSpaces={} aggregatedHits={} noNewResultsStreak={}",
@@ -485,33 +1145,37 @@ public final class SearchService {
             maxSteps,
             searchedSpaces,
             requestedSpaces,
-            aggregatedHits.size(),
+            bestHits.size(),
             noNewResultsStreak
         );
-        if (openAiClient.isConfigured()) {
+        Duration plannerTimeout = openAiClient.isConfigured() ? plannerCallTimeout(traceId, deadline) : null;
+        if (plannerTimeout != null) {
             try {
-                PlannerDecision llmDecision = decideWithLlm(
+                List<PlannerDecision> llmDecisions = decideWithLlm(
                     traceId,
-                    query,
+                    analysis,
                     requestedSpaces,
                     toolCalls,
-                    aggregatedHits,
+                    bestHits,
                     step,
                     maxSteps,
                     requestedLimit,
-                    noNewResultsStreak
+                    noNewResultsStreak,
+                    plannerTimeout
                 );
-                return new PlanningOutcome(llmDecision, true, false);
+                return new PlanningOutcome(llmDecisions.get(0), llmDecisions.subList(1, llmDecisions.size()), true, false);
+            } catch (InterruptedException ex) {
+                onInterrupted(traceId, cancellation, maxSteps - step + 1, true, ex);
             } catch (Exception ex) {
                 logger.warn("[{}] plan.llm.failed; falling back to heuristics", traceId, ex);
             }
         }
         PlannerDecision heuristicDecision = decideHeuristically(
             traceId,
-            query,
+            analysis,
             requestedSpaces,
             searchedSpaces,
-            aggregatedHits,
+            bestHits,
             step,
             maxSteps,
             requestedLimit,
@@ -519,26 +1183,27 @@ public final class SearchService {
         );
         return new PlanningOutcome(
             heuristicDecision,
+            List.of(),
             false,
             openAiClient.isConfigured()
         );
     }
 
-    private PlannerDecision decideWithLlm(
+    private List<PlannerDecision> decideWithLlm(
         String traceId,
-        String query,
+        QueryAnalyzer.Analysis analysis,
         EnumSet<SpaceType> requestedSpaces,
         List<Models.AgentToolCall> toolCalls,
-        List<MemoryHit> aggregatedHits,
+        HitIndex bestHits,
         int step,
         int maxSteps,
         int requestedLimit,
-        int noNewResultsStreak
+        int noNewResultsStreak,
+        Duration timeout
     ) throws IOException, InterruptedException {
-        QueryIntent queryIntent = inferIntent(query);
         ObjectNode payload = mapper.createObjectNode();
-        payload.put("query", query);
-        payload.put("queryIntent", queryIntent.name());
+        payload.put("query", analysis.query());
+        payload.put("queryIntent", analysis.intent().name());
         payload.put("step", step);
         payload.put("maxSteps", maxSteps);
         payload.put("requestedLimit", requestedLimit);
@@ -553,7 +1218,7 @@ public final class SearchService {
         }
 
         ArrayNode hits = payload.putArray("aggregatedHitsPreview");
-        for (Models.ResultPreview preview : previewHits(aggregatedHits, 8)) {
+        for (Models.ResultPreview preview : previewHits(bestHits.top(8), 8)) {
             hits.addPOJO(preview);
         }
 
@@ -566,69 +1231,148 @@ public final class SearchService {
             jsonForLog(payload, 4000)
         );
         JsonNode response = openAiClient.chatJson(
-            """
-            You are the search controller for a Quran.com omni-search agent.
-            Available spaces:
-            - quran: Arabic ayah text and verse references
-            - translation: translated ayah text
-            - tafsir: explanatory commentary
-            - post: community reflections/posts
-            - course: course lessons
-            - article: editorial/article content
-
-            Available tools:
-            - quran_lookup: deterministic Quran reference lookup from local Quran/translation data.
-              Use this when the user gives a surah, ayah, ayah range, Quran reference, or known alias.
-              You must resolve surah names and aliases yourself. Examples:
-              "surah nur 3-4" -> {"surah":24,"start_ayah":3,"end_ayah":4}
-              "an-nur ayah 3" -> {"surah":24,"start_ayah":3,"end_ayah":3}
-              "surah 26" -> {"surah":26,"start_ayah":null,"end_ayah":null}
-              "2:255" or "ayah kursi" -> {"surah":2,"start_ayah":255,"end_ayah":255}
-            - goodmem_search: semantic search over one to three content spaces.
-
-            Use one action per step.
-            Basic routing rules:
-            - If the query is a Quran reference, surah name/number, ayah, ayah range, or known reference alias, call quran_lookup first.
-            - If queryIntent is VERSE_REFERENCE but it is not resolvable to quran_lookup parameters, start with quran and translation; add tafsir if explanation is implied.
-            - If queryIntent is EXPLANATION, the first search must include tafsir and should not start with post/course/article.
-            - Questions about which ayah or surah was revealed first or last should be treated as EXPLANATION and include tafsir.
-            - If queryIntent is COMMUNITY, the first search should include post.
-            - If queryIntent is LEARNING, the first search should include course or article.
-            - If queryIntent is TOPICAL, start with quran/translation/tafsir unless the wording clearly asks for reflections, courses, or articles.
-
-            Basic constraints:
-            - Do not finish on step 1.
-            - For quran_lookup, set tool_input.surah to an integer from 1 to 114.
-            - For quran_lookup, set tool_input.start_ayah/end_ayah to integers for a single ayah or range, or null/null for a whole surah.
-            - For quran_lookup, do not put the reference in tool_input.query; use the numeric fields.
-            - For goodmem_search, choose 1 to 3 spaces only.
-            - For goodmem_search, tool_input.query must be non-empty and should usually be a simplified rewrite of the user query.
-            - If noNewResultsStreak is greater than 0, prefer unsearched spaces or a shorter query rewrite before finishing.
-            - Finish only when evidence is already good enough or the useful spaces are exhausted.
-
-            Return STRICT JSON:
-            {"thought":string,"action":"quran_lookup"|"goodmem_search"|"finish","tool_input":{"surah":number|null,"start_ayah":number|null,"end_ayah":number|null,"spaces":[string],"query":string,"limit":number},"summary":string}
-            For finish, summary should be a concise high-level synthesis and tool_input may be ignored.
-            """,
+            STEP_PLANNER_PROMPT,
             payload,
             config.plannerModel(),
             config.plannerFallbackModels(),
-            0.1
+            0.1,
+            timeout
         );
 
+        logger.info("[{}] plan.llm.response step={} response={}", traceId, step, jsonForLog(response, 4000));
         String thought = text(response, "thought");
-        String action = text(response, "action");
         String summary = text(response, "summary");
+        JsonNode actions = response.path("actions");
+        if (!actions.isArray() || actions.isEmpty()) {
+            return List.of(parseDecision(response, thought, summary, analysis, requestedSpaces, requestedLimit, step));
+        }
+        List<PlannerDecision> decisions = new ArrayList<>();
+        for (JsonNode node : actions) {
+            if (decisions.size() >= MAX_STEP_ACTIONS) {
+                break;
+            }
+            decisions.add(parseDecision(node, thought, summary, analysis, requestedSpaces, requestedLimit, step));
+        }
+        return decisions;
+    }
+
+    /**
+     * Ask the LLM once for every action of the search; the actions all belong to {@code step}.
+     * Returns {@code null} when there is no time for the call, the call fails, or the plan has no
+     * usable action; the caller then plans step by step.
+     */
+    private List<PlannerDecision> planOnce(
+        String traceId,
+        QueryAnalyzer.Analysis analysis,
+        EnumSet<SpaceType> requestedSpaces,
+        List<Models.AgentToolCall> toolCalls,
+        HitIndex bestHits,
+        int step,
+        int maxActions,
+        int requestedLimit,
+        SearchDeadline deadline
+    ) {
+        Duration timeout = plannerCallTimeout(traceId, deadline);
+        if (timeout == null) {
+            return null;
+        }
+        ObjectNode payload = mapper.createObjectNode();
+        payload.put("query", analysis.query());
+        payload.put("queryIntent", analysis.intent().name());
+        payload.put("maxActions", maxActions);
+        payload.put("requestedLimit", requestedLimit);
+
+        ArrayNode spaces = payload.putArray("requestedSpaces");
+        requestedSpaces.stream().map(SpaceType::apiName).forEach(spaces::add);
 
-        JsonNode toolInput = response.path("tool_input");
+        ArrayNode toolLog = payload.putArray("toolLog");
+        toolCalls.forEach(toolLog::addPOJO);
+
+        ArrayNode hits = payload.putArray("aggregatedHitsPreview");
+        for (Models.ResultPreview preview : previewHits(bestHits.top(8), 8)) {
+            hits.addPOJO(preview);
+        }
+
+        logger.info(
+            "[{}] plan.once.request model={} fallbacks={} payload={}",
+            traceId,
+            config.plannerModel(),
+            config.plannerFallbackModels(),
+            jsonForLog(payload, 4000)
+        );
+        JsonNode response;
+        try {
+            response = openAiClient.chatJson(
+                PLAN_ONCE_PROMPT,
+                payload,
+                config.plannerModel(),
+                config.plannerFallbackModels(),
+                0.1,
+                timeout
+            );
+        } catch (InterruptedException ex) {
+            // The caller's next cancellation check aborts the search.
+            Thread.currentThread().interrupt();
+            logger.info("[{}] plan.once.interrupted", traceId);
+            return null;
+        } catch (Exception ex) {
+            logger.warn("[{}] plan.once.failed; planning step by step", traceId, ex);
+            return null;
+        }
+        logger.info("[{}] plan.once.response response={}", traceId, jsonForLog(response, 4000));
+
+        String thought = text(response, "thought");
+        List<PlannerDecision> plan = new ArrayList<>();
+        int lookups = 0;
+        int searches = 0;
+        for (JsonNode node : response.path("actions")) {
+            if (plan.size() >= maxActions) {
+                break;
+            }
+            PlannerDecision decision = parseDecision(
+                node,
+                thought,
+                null,
+                analysis,
+                requestedSpaces,
+                requestedLimit,
+                step
+            );
+            boolean usable = false;
+            if ("quran_lookup".equals(decision.action())) {
+                usable = lookups == 0 && decision.quranLookupInput() != null && decision.quranLookupInput().isValid();
+                lookups += usable ? 1 : 0;
+            } else if ("goodmem_search".equals(decision.action())) {
+                usable = searches < MAX_CONCURRENT_SEARCHES;
+                searches += usable ? 1 : 0;
+            }
+            if (usable) {
+                plan.add(decision);
+            } else {
+                logger.info("[{}] plan.once.dropped action={} input={}", traceId, decision.action(), jsonForLog(node, 500));
+            }
+        }
+        return plan.isEmpty() ? null : plan;
+    }
+
+    private PlannerDecision parseDecision(
+        JsonNode node,
+        String thought,
+        String summary,
+        QueryAnalyzer.Analysis analysis,
+        EnumSet<SpaceType> requestedSpaces,
+        int requestedLimit,
+        int step
+    ) {
+        String action = text(node, "action");
+        JsonNode toolInput = node.path("tool_input");
         List<SpaceType> spacesForTool = parseSpaceList(toolInput.path("spaces"), requestedSpaces);
         String toolQuery = text(toolInput, "query");
         int limit = toolInput.path("limit").asInt(requestedLimit);
         QuranLookupInput quranLookupInput = parseQuranLookupInput(toolInput);
-        logger.info("[{}] plan.llm.response step={} response={}", traceId, step, jsonForLog(response, 4000));
 
         if ((toolQuery == null || toolQuery.isBlank()) && !"quran_lookup".equals(action)) {
-            toolQuery = rewriteQueryForSearch(query, step, 0);
+            toolQuery = analysis.rewrite(step, 0);
         }
         if (action == null || action.isBlank()) {
             action = "goodmem_search";
@@ -643,39 +1387,51 @@ public final class SearchService {
         );
     }
 
+    /**
+     * Timeout for one planner call, leaving the minimum call budget for the rest of the search.
+     * Returns {@code null}, and marks the search truncated, when the deadline cannot fit the call.
+     */
+    private Duration plannerCallTimeout(String traceId, SearchDeadline deadline) {
+        Duration plannerBudget = deadline.remaining().minus(config.deadlineMinCallBudget());
+        if (plannerBudget.compareTo(config.deadlineMinCallBudget()) < 0) {
+            deadline.markTruncated();
+            logger.info("[{}] plan.llm.skip reason=deadline remainingMs={}", traceId, deadline.remaining().toMillis());
+            return null;
+        }
+        return deadline.callTimeout(plannerBudget.compareTo(OpenAiChatClient.DEFAULT_TIMEOUT) < 0
+            ? plannerBudget
+            : OpenAiChatClient.DEFAULT_TIMEOUT);
+    }
+
     private PlannerDecision decideHeuristically(
         String traceId,
-        String query,
+        QueryAnalyzer.Analysis analysis,
         EnumSet<SpaceType> requestedSpaces,
         EnumSet<SpaceType> searchedSpaces,
-        List<MemoryHit> aggregatedHits,
+        HitIndex bestHits,
         int step,
         int maxSteps,
         int requestedLimit,
         int noNewResultsStreak
     ) {
-        QueryIntent intent = inferIntent(query);
+        QueryIntent intent = analysis.intent();
         if (step >= maxSteps) {
             return new PlannerDecision(
                 "Reached max agent steps.",
                 "finish",
-                ToolInput.empty(query, requestedLimit),
+                ToolInput.empty(analysis.query(), requestedLimit),
                 null,
                 null
             );
         }
 
-        boolean hasTextualEvidence = aggregatedHits.stream().anyMatch(hit ->
-            hit.spaceType() == SpaceType.QURAN
-                || hit.spaceType() == SpaceType.TRANSLATION
-                || hit.spaceType() == SpaceType.TAFSIR
-        );
-        boolean hasTafsirEvidence = aggregatedHits.stream().anyMatch(hit -> hit.spaceType() == SpaceType.TAFSIR);
-        boolean hasDirectEvidence = aggregatedHits.stream().anyMatch(hit ->
-            hit.spaceType() == SpaceType.POST
-                || hit.spaceType() == SpaceType.COURSE
-                || hit.spaceType() == SpaceType.ARTICLE
-        );
+        boolean hasTextualEvidence = bestHits.count(SpaceType.QURAN) > 0
+            || bestHits.count(SpaceType.TRANSLATION) > 0
+            || bestHits.count(SpaceType.TAFSIR) > 0;
+        boolean hasTafsirEvidence = bestHits.count(SpaceType.TAFSIR) > 0;
+        boolean hasDirectEvidence = bestHits.count(SpaceType.POST) > 0
+            || bestHits.count(SpaceType.COURSE) > 0
+            || bestHits.count(SpaceType.ARTICLE) > 0;
         logger.info(
             "[{}] plan.heuristic.context step={} intent={} hasTextualEvidence={} hasTafsirEvidence={} hasDirectEvidence={}",
             traceId,
@@ -691,7 +1447,7 @@ public final class SearchService {
                 return new PlannerDecision(
                     "Verse-oriented evidence is already strong.",
                     "finish",
-                    ToolInput.empty(query, requestedLimit),
+                    ToolInput.empty(analysis.query(), requestedLimit),
                     null,
                     null
                 );
@@ -703,7 +1459,7 @@ public final class SearchService {
                     return new PlannerDecision(
                         "Explanation-oriented evidence already includes tafsir.",
                         "finish",
-                        ToolInput.empty(query, requestedLimit),
+                        ToolInput.empty(analysis.query(), requestedLimit),
                         null,
                         null
                     );
@@ -712,7 +1468,7 @@ public final class SearchService {
                     return new PlannerDecision(
                         "Explanation-oriented evidence is sufficient after searching tafsir-relevant spaces.",
                         "finish",
-                        ToolInput.empty(query, requestedLimit),
+                        ToolInput.empty(analysis.query(), requestedLimit),
                         null,
                         null
                     );
@@ -723,7 +1479,7 @@ public final class SearchService {
                 return new PlannerDecision(
                     "Direct-content evidence is sufficient and the last step added nothing new.",
                     "finish",
-                    ToolInput.empty(query, requestedLimit),
+                    ToolInput.empty(analysis.query(), requestedLimit),
                     null,
                     null
                 );
@@ -732,7 +1488,7 @@ public final class SearchService {
                 return new PlannerDecision(
                     "Useful spaces are exhausted.",
                     "finish",
-                    ToolInput.empty(query, requestedLimit),
+                    ToolInput.empty(analysis.query(), requestedLimit),
                     null,
                     null
                 );
@@ -740,12 +1496,11 @@ public final class SearchService {
         }
 
         ToolInput nextToolInput = chooseToolInput(
-            query,
+            analysis,
             requestedSpaces,
             searchedSpaces,
             requestedLimit,
-            noNewResultsStreak,
-            intent
+            noNewResultsStreak
         );
         return new PlannerDecision(
             "Use heuristic space selection for the next retrieval step.",
@@ -757,13 +1512,13 @@ public final class SearchService {
     }
 
     private ToolInput chooseToolInput(
-        String query,
+        QueryAnalyzer.Analysis analysis,
         EnumSet<SpaceType> requestedSpaces,
         EnumSet<SpaceType> searchedSpaces,
         int requestedLimit,
-        int noNewResultsStreak,
-        QueryIntent intent
+        int noNewResultsStreak
     ) {
+        QueryIntent intent = analysis.intent();
         List<SpaceType> priority = prioritizeSpaces(intent, requestedSpaces);
         List<SpaceType> unexplored = priority.stream()
             .filter(space -> !searchedSpaces.contains(space))
@@ -774,25 +1529,25 @@ public final class SearchService {
         } else {
             chosen = priority.stream().limit(Math.min(3, priority.size())).collect(Collectors.toList());
         }
-        String toolQuery = rewriteQueryForSearch(query, searchedSpaces.size() + 1, noNewResultsStreak);
+        String toolQuery = analysis.rewrite(searchedSpaces.size() + 1, noNewResultsStreak);
         int limit = clampLimit(intent == QueryIntent.TOPICAL ? requestedLimit + 2 : requestedLimit);
         return new ToolInput(chosen, toolQuery, limit);
     }
 
     private ToolInputTightening tightenPlannerToolInput(
         ToolInput toolInput,
-        String query,
-        QueryIntent intent,
+        QueryAnalyzer.Analysis analysis,
         EnumSet<SpaceType> requestedSpaces,
         int step
     ) {
+        QueryIntent intent = analysis.intent();
         List<SpaceType> spaces = new ArrayList<>(toolInput.spaces());
         String toolQuery = toolInput.query();
         int limit = clampLimit(toolInput.limit());
         String reason = null;
 
         if (toolQuery == null || toolQuery.isBlank()) {
-            toolQuery = rewriteQueryForSearch(query, step, 0);
+            toolQuery = analysis.rewrite(step, 0);
             reason = combineReasons(reason, "Planner returned an empty query rewrite");
         }
 
@@ -846,14 +1601,27 @@ public final class SearchService {
             .collect(Collectors.toList());
     }
 
-    private List<MemoryHit> executeTool(
+    /**
+     * Submit one retrieval per space of a {@code goodmem_search} without waiting for them, claiming
+     * matching speculative retrievals instead of starting new ones. A space whose bulkhead rejects
+     * the retrieval is not searched and is listed in {@link PendingTool#rejected()}.
+     */
+    private PendingTool startTool(
         String traceId,
         int step,
         ToolInput toolInput,
         Map<SpaceType, String> spaceIds,
-        TafsirSourceConstraint tafsirSource
+        TafsirSourceConstraint tafsirSource,
+        RetrievalMemo retrievals,
+        SearchDeadline deadline,
+        SearchCancellation cancellation,
+        SearchTimings timings,
+        SpeculativeRetrieval speculation
     ) {
-        List<CompletableFuture<List<MemoryHit>>> futures = new ArrayList<>();
+        List<Future<List<MemoryHit>>> futures = new ArrayList<>();
+        Set<Future<List<MemoryHit>>> speculative = new HashSet<>();
+        List<Runnable> untrack = new ArrayList<>();
+        EnumSet<SpaceType> rejected = EnumSet.noneOf(SpaceType.class);
         logger.info(
             "[{}] tool.execute step={} query={} spaces={} limit={} tafsirSource={}",
             traceId,
@@ -869,42 +1637,538 @@ public final class SearchService {
                 logger.warn("[{}] tool.execute.missing_space_id step={} space={}", traceId, step, spaceType);
                 continue;
             }
-            String filter = buildRetrievalFilter(spaceType, null, tafsirSource);
-            futures.add(CompletableFuture.supplyAsync(() -> {
+            Future<List<MemoryHit>> future = speculation == null ? null : speculation.claim(spaceType, toolInput);
+            if (future != null) {
+                speculative.add(future);
+                logger.info("[{}] speculation.used step={} space={}", traceId, step, spaceType);
+            } else {
+                future = submitRetrieval(
+                    traceId,
+                    step,
+                    "retrieve",
+                    spaceType,
+                    spaceId,
+                    toolInput,
+                    buildRetrievalFilter(spaceType, null, tafsirSource),
+                    retrievals,
+                    deadline,
+                    timings
+                );
+                if (future == null) {
+                    rejected.add(spaceType);
+                    continue;
+                }
+            }
+            futures.add(future);
+            untrack.add(cancellation.track(future, metrics::recordCancelledRetrieval));
+        }
+        return new PendingTool(step, toolInput, futures, speculative, untrack, rejected);
+    }
+
+    private List<MemoryHit> awaitTool(String traceId, PendingTool pending, SearchDeadline deadline) {
+        int step = pending.step();
+        List<MemoryHit> hits = new ArrayList<>();
+        for (Future<List<MemoryHit>> future : pending.futures()) {
+            try {
+                List<MemoryHit> spaceHits = future.get(deadline.remaining().toMillis(), TimeUnit.MILLISECONDS);
+                hits.addAll(pending.speculative().contains(future)
+                    ? limitHits(spaceHits, pending.toolInput().limit())
+                    : spaceHits);
+            } catch (TimeoutException ex) {
+                deadline.markTruncated();
+                future.cancel(true);
+                logger.warn("[{}] goodmem.retrieve.deadline step={}", traceId, step);
+            } catch (CancellationException ex) {
+                logger.info("[{}] goodmem.retrieve.cancelled step={}", traceId, step);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                logger.warn("[{}] goodmem.retrieve.failed step={}", traceId, step, ex.getCause());
+            }
+        }
+        pending.untrack().forEach(Runnable::run);
+        hits.sort(Comparator.comparingDouble(MemoryHit::score).reversed());
+        return hits;
+    }
+
+    /**
+     * Turn one planner decision into an executable action. An invalid {@code quran_lookup} falls back
+     * to the heuristic search; searches go through {@link #resolveToolInput}.
+     */
+    private StepAction prepareAction(
+        String traceId,
+        int step,
+        PlannerDecision decision,
+        String action,
+        ToolInput toolInput,
+        boolean forced,
+        String forcedReason,
+        QueryAnalyzer.Analysis analysis,
+        EnumSet<SpaceType> requestedSpaces,
+        EnumSet<SpaceType> searchedSpaces,
+        int requestedLimit,
+        int noNewResultsStreak,
+        TafsirSourceConstraint tafsirSource
+    ) {
+        if ("quran_lookup".equals(action)) {
+            QuranLookupInput quranLookupInput = decision.quranLookupInput();
+            if (quranLookupInput != null && quranLookupInput.isValid()) {
+                QuranReference reference = new QuranReference(
+                    quranLookupInput.surah(),
+                    quranLookupInput.startAyah(),
+                    quranLookupInput.endAyah()
+                );
+                return new StepAction(step, decision, action, reference, null);
+            }
+            forced = true;
+            forcedReason = "Planner returned invalid quran_lookup parameters";
+            action = "goodmem_search";
+            toolInput = chooseToolInput(
+                analysis,
+                requestedSpaces,
+                searchedSpaces,
+                requestedLimit,
+                noNewResultsStreak
+            );
+        }
+        ResolvedToolInput resolved = resolveToolInput(
+            traceId,
+            step,
+            toolInput,
+            forced,
+            forcedReason,
+            analysis,
+            requestedSpaces,
+            searchedSpaces,
+            requestedLimit,
+            noNewResultsStreak,
+            tafsirSource
+        );
+        return new StepAction(step, decision, action, null, resolved);
+    }
+
+    /**
+     * Run independent actions together: direct lookups inline, and every search submitted before any
+     * is awaited. Each action is reported as its own tool call and its hits merged as it completes.
+     */
+    private StepOutcome runActions(
+        String traceId,
+        List<StepAction> actions,
+        EnumSet<SpaceType> requestedSpaces,
+        int requestedLimit,
+        Map<SpaceType, String> spaceIds,
+        TafsirSourceConstraint tafsirSource,
+        RetrievalMemo retrievals,
+        SearchDeadline deadline,
+        SearchCancellation cancellation,
+        SearchTimings timings,
+        SpeculativeRetrieval speculation,
+        HitIndex bestHits,
+        EnumSet<SpaceType> searchedSpaces,
+        List<Models.AgentToolCall> toolCalls,
+        SearchEventListener listener
+    ) {
+        List<DirectQuranLookup> lookups = new ArrayList<>();
+        List<PlannedSearch> searches = new ArrayList<>();
+        int newResultCount = 0;
+        int hitCount = 0;
+        boolean shed = false;
+        for (StepAction action : actions) {
+            if (action.reference() != null) {
+                long lookupStarted = System.nanoTime();
+                DirectQuranLookup directLookup = lookupQuranReference(action.reference(), requestedSpaces, requestedLimit);
+                timings.record("quran_lookup", null, action.step(), System.nanoTime() - lookupStarted);
+                newResultCount += recordDirectLookup(
+                    traceId,
+                    action.step(),
+                    blankToNull(action.decision().thought()),
+                    directLookup,
+                    bestHits,
+                    searchedSpaces,
+                    toolCalls,
+                    listener
+                );
+                hitCount += directLookup.hits().size();
+                lookups.add(directLookup);
+                continue;
+            }
+            ToolInput toolInput = action.resolved().toolInput();
+            listener.onStatus("Step " + action.step() + ": searching " + spaceNames(toolInput));
+            PendingTool pending = startTool(
+                traceId,
+                action.step(),
+                toolInput,
+                spaceIds,
+                tafsirSource,
+                retrievals,
+                deadline,
+                cancellation,
+                timings,
+                speculation
+            );
+            searches.add(new PlannedSearch(action, pending));
+        }
+        for (PlannedSearch search : searches) {
+            List<MemoryHit> hits = awaitTool(traceId, search.pending(), deadline);
+            throwIfCancelled(traceId, cancellation, 0, true);
+            StepAction action = search.action();
+            int searchNewResults = bestHits.merge(hits);
+            action.resolved().toolInput().spaces().stream()
+                .filter(space -> !search.pending().rejected().contains(space))
+                .forEach(searchedSpaces::add);
+            shed = shed || !search.pending().rejected().isEmpty();
+            logger.info(
+                "[{}] tool.done step={} spaces={} hits={} newResults={}",
+                traceId,
+                action.step(),
+                action.resolved().toolInput().spaces(),
+                hits.size(),
+                searchNewResults
+            );
+            Models.AgentToolCall toolCall = searchToolCall(
+                action.step(),
+                action.decision(),
+                action.action(),
+                action.resolved(),
+                hits,
+                searchNewResults
+            );
+            toolCalls.add(toolCall);
+            listener.onToolCall(toolCall);
+            newResultCount += searchNewResults;
+            hitCount += hits.size();
+        }
+        return new StepOutcome(newResultCount, hitCount, lookups, shed);
+    }
+
+    /**
+     * Apply the guard rails every {@code goodmem_search} goes through, whoever planned it: heuristic
+     * spaces when none were given, intent tightening, unexplored spaces after a dry step, and the
+     * tafsir source filter. {@code forced}/{@code forcedReason} carry over earlier overrides.
+     */
+    private ResolvedToolInput resolveToolInput(
+        String traceId,
+        int step,
+        ToolInput toolInput,
+        boolean forced,
+        String forcedReason,
+        QueryAnalyzer.Analysis analysis,
+        EnumSet<SpaceType> requestedSpaces,
+        EnumSet<SpaceType> searchedSpaces,
+        int requestedLimit,
+        int noNewResultsStreak,
+        TafsirSourceConstraint tafsirSource
+    ) {
+        if (toolInput.spaces().isEmpty()) {
+            forced = true;
+            forcedReason = "Planner returned no spaces; using heuristic space selection";
+            toolInput = chooseToolInput(
+                analysis,
+                requestedSpaces,
+                searchedSpaces,
+                requestedLimit,
+                noNewResultsStreak
+            );
+        }
+
+        ToolInputTightening tightening = tightenPlannerToolInput(
+            toolInput,
+            analysis,
+            requestedSpaces,
+            step
+        );
+        if (tightening.reason() != null) {
+            forced = true;
+            forcedReason = combineReasons(forcedReason, tightening.reason());
+            toolInput = tightening.toolInput();
+            logger.info(
+                "[{}] plan.tightened step={} reason={} toolQuery={} spaces={} limit={}",
+                traceId,
+                step,
+                forcedReason,
+                quoted(toolInput.query()),
+                toolInput.spaces(),
+                toolInput.limit()
+            );
+        }
+
+        if (noNewResultsStreak > 0 && searchedSpaces.containsAll(toolInput.spaces())) {
+            List<SpaceType> unexplored = requestedSpaces.stream()
+                .filter(space -> !searchedSpaces.contains(space))
+                .collect(Collectors.toList());
+            if (!unexplored.isEmpty()) {
+                forced = true;
+                forcedReason = combineReasons(forcedReason, "Exploring spaces not yet searched");
+                toolInput = new ToolInput(unexplored, toolInput.query(), toolInput.limit());
+            }
+        }
+
+        if (tafsirSource != null && toolInput.spaces().contains(SpaceType.TAFSIR)) {
+            forced = true;
+            forcedReason = combineReasons(
+                forcedReason,
+                "Applied tafsir source filter for " + tafsirSource.label()
+            );
+        }
+        return new ResolvedToolInput(toolInput, forced, forcedReason);
+    }
+
+    private Models.AgentToolCall searchToolCall(
+        int step,
+        PlannerDecision decision,
+        String action,
+        ResolvedToolInput resolved,
+        List<MemoryHit> hits,
+        int newResultCount
+    ) {
+        ToolInput toolInput = resolved.toolInput();
+        return new Models.AgentToolCall(
+            step,
+            blankToNull(decision.thought()),
+            action,
+            toolInput.query(),
+            toolInput.spaces().stream().map(SpaceType::apiName).collect(Collectors.toList()),
+            toolInput.limit(),
+            hits.size(),
+            newResultCount,
+            resolved.forced(),
+            resolved.forcedReason(),
+            previewHits(hits, 5)
+        );
+    }
+
+    private static String spaceNames(ToolInput toolInput) {
+        return toolInput.spaces().stream()
+            .map(SpaceType::apiName)
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Start one GoodMem retrieval on its space's bulkhead. Failures are logged and yield no hits;
+     * rejection by a saturated bulkhead is logged and returns {@code null}.
+     */
+    private Future<List<MemoryHit>> submitRetrieval(
+        String traceId,
+        int step,
+        String stage,
+        SpaceType spaceType,
+        String spaceId,
+        ToolInput toolInput,
+        String filter,
+        RetrievalMemo retrievals,
+        SearchDeadline deadline,
+        SearchTimings timings
+    ) {
+        Duration timeout = deadline.callTimeout(GoodMemClient.DEFAULT_TIMEOUT);
+        try {
+            return bulkheads.submit(spaceType, () -> {
                 try {
                     logger.info(
-                        "[{}] goodmem.retrieve.start step={} space={} query={} limit={} filter={} spaceId={}",
+                        "[{}] goodmem.retrieve.start step={} stage={} space={} query={} limit={} filter={} spaceId={}",
                         traceId,
                         step,
+                        stage,
                         spaceType,
                         quoted(toolInput.query()),
                         toolInput.limit(),
                         filter,
                         maskId(spaceId)
                     );
-                    List<MemoryHit> hits = client.retrieve(toolInput.query(), spaceType, spaceId, toolInput.limit(), filter);
+                    long retrieveStarted = System.nanoTime();
+                    List<MemoryHit> hits = retrievals == null
+                        ? client.retrieve(toolInput.query(), spaceType, spaceId, toolInput.limit(), filter, timeout)
+                        : retrievals.retrieve(
+                            toolInput.query(),
+                            spaceType,
+                            spaceId,
+                            toolInput.limit(),
+                            filter,
+                            () -> client.retrieve(toolInput.query(), spaceType, spaceId, toolInput.limit(), filter, timeout)
+                        );
+                    timings.record(stage, spaceType.apiName(), step, System.nanoTime() - retrieveStarted);
                     logger.info(
-                        "[{}] goodmem.retrieve.done step={} space={} hits={} previews={}",
+                        "[{}] goodmem.retrieve.done step={} stage={} space={} hits={} previews={}",
                         traceId,
                         step,
+                        stage,
                         spaceType,
                         hits.size(),
                         previewHitsForLog(hits, 8)
                     );
                     return hits;
+                } catch (InterruptedException ex) {
+                    logger.info("[{}] goodmem.retrieve.aborted step={} stage={} space={}", traceId, step, stage, spaceType);
+                    return List.of();
                 } catch (Exception ex) {
-                    logger.warn("[{}] goodmem.retrieve.failed step={} space={}", traceId, step, spaceType, ex);
+                    logger.warn("[{}] goodmem.retrieve.failed step={} stage={} space={}", traceId, step, stage, spaceType, ex);
                     return List.of();
                 }
-            }, executor));
+            });
+        } catch (RejectedExecutionException ex) {
+            logger.warn(
+                "[{}] goodmem.retrieve.rejected step={} stage={} space={} queueDepth={}",
+                traceId,
+                step,
+                stage,
+                spaceType,
+                bulkheads.queueDepth(spaceType)
+            );
+            return null;
+        }
+    }
+
+    /**
+     * Start the heuristic's predicted retrieval so it runs while the LLM planner decides. Returns
+     * {@code null} when speculation is disabled or the planner will not call the LLM anyway.
+     */
+    private SpeculativeRetrieval startSpeculation(
+        String traceId,
+        int step,
+        ToolInput predicted,
+        Map<SpaceType, String> spaceIds,
+        TafsirSourceConstraint tafsirSource,
+        RetrievalMemo retrievals,
+        SearchDeadline deadline,
+        SearchCancellation cancellation,
+        SearchTimings timings
+    ) {
+        if (!config.speculativeRetrieval()
+            || !openAiClient.isConfigured()
+            || !deadline.hasAtLeast(config.deadlineMinCallBudget().multipliedBy(2))
+            || predicted.spaces().isEmpty()) {
+            return null;
+        }
+        SpeculativeRetrieval speculation = new SpeculativeRetrieval(predicted);
+        for (SpaceType spaceType : predicted.spaces()) {
+            String spaceId = spaceIds.get(spaceType);
+            if (spaceId == null || spaceId.isBlank()) {
+                continue;
+            }
+            Future<List<MemoryHit>> future = submitRetrieval(
+                traceId,
+                step,
+                "speculative_retrieve",
+                spaceType,
+                spaceId,
+                predicted,
+                buildRetrievalFilter(spaceType, null, tafsirSource),
+                retrievals,
+                deadline,
+                timings
+            );
+            if (future == null) {
+                continue;
+            }
+            speculation.add(spaceType, future, cancellation.track(future, metrics::recordCancelledRetrieval));
+        }
+        logger.info(
+            "[{}] speculation.start query={} spaces={} limit={}",
+            traceId,
+            quoted(predicted.query()),
+            predicted.spaces(),
+            predicted.limit()
+        );
+        return speculation;
+    }
+
+    /**
+     * Resolve speculative retrievals the planner did not use: finished ones are merged as extra
+     * evidence, unfinished ones are cancelled. Returns the number of new results merged.
+     */
+    private int settleSpeculation(
+        String traceId,
+        SpeculativeRetrieval speculation,
+        HitIndex bestHits,
+        EnumSet<SpaceType> searchedSpaces
+    ) {
+        if (speculation == null) {
+            return 0;
+        }
+        SpeculationLeftovers leftovers = speculation.settle();
+        int newResultCount = bestHits.merge(leftovers.hits());
+        searchedSpaces.addAll(leftovers.spaces());
+        if (!leftovers.spaces().isEmpty() || leftovers.cancelled() > 0) {
+            logger.info(
+                "[{}] speculation.settled keptSpaces={} keptHits={} newResults={} cancelled={}",
+                traceId,
+                leftovers.spaces(),
+                leftovers.hits().size(),
+                newResultCount,
+                leftovers.cancelled()
+            );
+        }
+        return newResultCount;
+    }
+
+    /**
+     * Append an early-stop reason to the tool calls recorded for {@code step}; calls already streamed keep the old copy.
+     */
+    private static void markStepStopped(List<Models.AgentToolCall> toolCalls, int step, String reason) {
+        for (int i = 0; i < toolCalls.size(); i++) {
+            Models.AgentToolCall call = toolCalls.get(i);
+            if (call.step() != step) {
+                continue;
+            }
+            toolCalls.set(i, new Models.AgentToolCall(
+                call.step(),
+                call.thought(),
+                call.action(),
+                call.query(),
+                call.spaces(),
+                call.limit(),
+                call.resultCount(),
+                call.newResultCount(),
+                call.forced(),
+                combineReasons(call.forcedReason(), reason),
+                call.preview()
+            ));
+        }
+    }
+
+    /**
+     * Number of agent steps taken; a step may hold several concurrent tool calls.
+     */
+    private static int lastStep(List<Models.AgentToolCall> toolCalls) {
+        return toolCalls.stream().mapToInt(Models.AgentToolCall::step).max().orElse(0);
+    }
+
+    private static List<MemoryHit> limitHits(List<MemoryHit> hits, int limit) {
+        if (hits.size() <= limit) {
+            return hits;
         }
-        return futures.stream()
-            .map(CompletableFuture::join)
-            .flatMap(List::stream)
+        return hits.stream()
             .sorted(Comparator.comparingDouble(MemoryHit::score).reversed())
+            .limit(limit)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Send the ayah results that are new since the last step. Assembling them costs a pass over every
+     * hit, so it is skipped when no caller is streaming.
+     */
+    private void publishPartialResults(
+        int step,
+        String language,
+        EnumSet<SpaceType> requestedSpaces,
+        HitIndex bestHits,
+        PartialResultTracker partialResults,
+        SearchEventListener listener
+    ) {
+        if (!listener.streaming()) {
+            return;
+        }
+        List<Models.ConsolidatedAyahResult> ayahResults = assembler.assemblePartial(
+            language,
+            requestedSpaces,
+            bestHits.sorted()
+        );
+        List<Models.ConsolidatedAyahResult> delta = partialResults.delta(ayahResults);
+        if (!delta.isEmpty()) {
+            listener.onPartialResults(new Models.PartialResults(step, delta, partialResults.size()));
+        }
+    }
+
     private DirectQuranLookup lookupQuranReference(
         QuranReference reference,
         EnumSet<SpaceType> requestedSpaces,
@@ -988,6 +2252,52 @@ public final class SearchService {
         );
     }
 
+    /**
+     * Merge a direct lookup's hits and report it as a {@code quran_lookup} tool call. Returns the
+     * number of new results.
+     */
+    private int recordDirectLookup(
+        String traceId,
+        int step,
+        String thought,
+        DirectQuranLookup directLookup,
+        HitIndex bestHits,
+        EnumSet<SpaceType> searchedSpaces,
+        List<Models.AgentToolCall> toolCalls,
+        SearchEventListener listener
+    ) {
+        listener.onStatus("Step " + step + ": direct Quran lookup for " + directLookup.label());
+        int newResultCount = bestHits.merge(directLookup.hits());
+        searchedSpaces.addAll(directLookup.spaces());
+        logger.info(
+            "[{}] quran_lookup.done step={} reference={} spaces={} hits={} newResults={} previews={}",
+            traceId,
+            step,
+            directLookup.reference(),
+            directLookup.spaces(),
+            directLookup.hits().size(),
+            newResultCount,
+            previewHitsForLog(directLookup.hits(), 12)
+        );
+
+        Models.AgentToolCall directToolCall = new Models.AgentToolCall(
+            step,
+            thought,
+            "quran_lookup",
+            directLookup.label(),
+            directLookup.spaces().stream().map(SpaceType::apiName).collect(Collectors.toList()),
+            directLookup.limit(),
+            directLookup.hits().size(),
+            newResultCount,
+            false,
+            null,
+            previewHits(directLookup.hits(), 5)
+        );
+        toolCalls.add(directToolCall);
+        listener.onToolCall(directToolCall);
+        return newResultCount;
+    }
+
     private ObjectNode quranMetadata(QuranTextRepository.VerseInfo verse) {
         ObjectNode metadata = mapper.createObjectNode();
         metadata.put("ayah_key", verse.ayahKey());
@@ -1035,11 +2345,15 @@ public final class SearchService {
         return queryIntent != QueryIntent.EXPLANATION && tafsirSource == null;
     }
 
-    private String directLookupSummary(DirectQuranLookup lookup) {
-        if (lookup.hits().isEmpty()) {
+    private String directLookupSummary(List<DirectQuranLookup> lookups) {
+        List<String> labels = lookups.stream()
+            .filter(lookup -> !lookup.hits().isEmpty())
+            .map(DirectQuranLookup::label)
+            .collect(Collectors.toList());
+        if (labels.isEmpty()) {
             return null;
         }
-        return "Showing direct Quran reference results for " + lookup.label() + ".";
+        return "Showing direct Quran reference results for " + String.join(", ", labels) + ".";
     }
 
     private String buildRetrievalFilter(
@@ -1074,6 +2388,35 @@ public final class SearchService {
         return value.replace("'", "''");
     }
 
+    /**
+     * Wait for the result assembly that ran alongside the overview.
+     */
+    private Models.SearchResponse awaitAssembly(
+        String traceId,
+        Future<Models.SearchResponse> assembly,
+        SearchCancellation cancellation
+    ) {
+        try {
+            return assembly.get();
+        } catch (InterruptedException | CancellationException ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throwIfCancelled(traceId, cancellation, 0, false);
+            throw new IllegalStateException("Result assembly was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Result assembly failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Summarize the evidence. In fast mode a planner summary is used as-is instead of calling the
+     * LLM or GoodMem; so is the direct lookup summary of a query the reference parser resolved
+     * locally, which then makes no external call at all.
+     */
     private Models.AiOverview buildOverview(
         String traceId,
         String query,
@@ -1081,19 +2424,47 @@ public final class SearchService {
         EnumSet<SpaceType> searchedSpaces,
         Map<SpaceType, String> spaceIds,
         List<MemoryHit> hits,
-        String plannerSummary
+        String plannerSummary,
+        boolean fast,
+        boolean resolvedLocally,
+        OverviewStream overviewStream,
+        SearchDeadline deadline,
+        SearchCancellation cancellation,
+        SearchTimings timings
     ) {
         if (hits.isEmpty()) {
             logger.info("[{}] overview.skip reason=no_hits", traceId);
             return null;
         }
 
-        String summary = null;
-        if (openAiClient.isConfigured()) {
+        long started = System.nanoTime();
+        String path = "none";
+        String summary = fast || resolvedLocally ? blankToNull(plannerSummary) : null;
+        if (summary != null && resolvedLocally) {
+            logger.info("[{}] overview.reference using_lookup_summary summary={}", traceId, abbreviated(summary, 700));
+            path = "reference";
+        } else if (summary != null) {
+            logger.info("[{}] overview.fast using_planner_summary summary={}", traceId, abbreviated(summary, 700));
+            path = "planner";
+        }
+        boolean withinBudget = deadline.hasAtLeast(config.deadlineMinCallBudget());
+        if (summary == null && !withinBudget && (openAiClient.isConfigured() || client.isOverviewEnabled())) {
+            deadline.markTruncated();
+            logger.info("[{}] overview.remote.skip reason=deadline remainingMs={}", traceId, deadline.remaining().toMillis());
+        }
+        // Only stream the overview to a caller that is listening for it; plain responses get the JSON prompt.
+        boolean streaming = config.overviewStreaming() && overviewStream.streaming();
+        if (summary == null && withinBudget && openAiClient.isConfigured()) {
             try {
-                logger.info("[{}] overview.llm.start hits={}", traceId, hits.size());
-                summary = summarizeWithLlm(query, hits);
+                logger.info("[{}] overview.llm.start hits={} streaming={}", traceId, hits.size(), streaming);
+                Duration timeout = deadline.callTimeout(OpenAiChatClient.DEFAULT_TIMEOUT);
+                summary = streaming
+                    ? summarizeWithLlmStreaming(query, hits, overviewStream, timeout)
+                    : summarizeWithLlm(query, hits, timeout);
                 logger.info("[{}] overview.llm.done summary={}", traceId, abbreviated(summary, 700));
+                path = "llm";
+            } catch (InterruptedException ex) {
+                onInterrupted(traceId, cancellation, 0, true, ex);
             } catch (Exception ex) {
                 logger.warn("[{}] overview.llm.failed", traceId, ex);
             }
@@ -1102,9 +2473,11 @@ public final class SearchService {
             summary = plannerSummary;
             if (summary != null && !summary.isBlank()) {
                 logger.info("[{}] overview.using_planner_summary summary={}", traceId, abbreviated(summary, 700));
+                path = "planner";
             }
         }
-        if ((summary == null || summary.isBlank()) && client.isOverviewEnabled()) {
+        if ((summary == null || summary.isBlank()) && client.isOverviewEnabled()
+            && deadline.hasAtLeast(config.deadlineMinCallBudget())) {
             try {
                 List<String> overviewSpaceIds = searchedSpaces.stream()
                     .filter(requestedSpaces::contains)
@@ -1115,9 +2488,17 @@ public final class SearchService {
                     .collect(Collectors.toList());
                 if (!overviewSpaceIds.isEmpty()) {
                     logger.info("[{}] overview.goodmem.start spaceIds={}", traceId, overviewSpaceIds.stream().map(SearchService::maskId).collect(Collectors.toList()));
-                    summary = client.generateOverview(query, overviewSpaceIds);
+                    summary = client.generateOverview(
+                        query,
+                        overviewSpaceIds,
+                        streaming ? overviewStream::replace : null,
+                        deadline.callTimeout(GoodMemClient.DEFAULT_TIMEOUT)
+                    );
                     logger.info("[{}] overview.goodmem.done summary={}", traceId, abbreviated(summary, 700));
+                    path = "goodmem";
                 }
+            } catch (InterruptedException ex) {
+                onInterrupted(traceId, cancellation, 0, true, ex);
             } catch (Exception ex) {
                 logger.warn("[{}] overview.goodmem.failed", traceId, ex);
             }
@@ -1125,15 +2506,36 @@ public final class SearchService {
         if (summary == null || summary.isBlank()) {
             summary = heuristicOverview(hits);
             logger.info("[{}] overview.heuristic summary={}", traceId, abbreviated(summary, 700));
+            path = "heuristic";
         }
+        timings.record("overview", path, null, System.nanoTime() - started);
         if (summary == null || summary.isBlank()) {
             logger.info("[{}] overview.skip reason=blank_summary", traceId);
             return null;
         }
+        overviewStream.replace(summary.trim());
         return new Models.AiOverview(summary.trim());
     }
 
-    private String summarizeWithLlm(String query, List<MemoryHit> hits) throws IOException, InterruptedException {
+    private String summarizeWithLlm(
+        String query,
+        List<MemoryHit> hits,
+        Duration timeout
+    ) throws IOException, InterruptedException {
+        JsonNode response = openAiClient.chatJson(
+            SUMMARY_PROMPT + """
+            Return STRICT JSON: {"summary": string}
+            """,
+            summaryPayload(query, hits),
+            config.summaryModel(),
+            config.summaryFallbackModels(),
+            0.2,
+            timeout
+        );
+        return text(response, "summary");
+    }
+
+    private ObjectNode summaryPayload(String query, List<MemoryHit> hits) {
         ObjectNode payload = mapper.createObjectNode();
         payload.put("query", query);
         ArrayNode evidence = payload.putArray("evidence");
@@ -1150,47 +2552,42 @@ public final class SearchService {
             item.put("text", TextCleaner.cleanSnippet(hit.text(), 500));
             item.put("score", hit.score());
         }
+        return payload;
+    }
 
-        JsonNode response = openAiClient.chatJson(
-            """
-            You are summarizing retrieved Quran.com search evidence.
-            Use only the evidence supplied.
-            Prefer verse references like 2:255 when applicable.
-            When surah metadata is supplied, name the surah by transliteration and Arabic name before summarizing.
-            Mention when evidence comes from tafsir, reflections, courses, or articles.
-            Keep the response concise and factual.
-            Return STRICT JSON: {"summary": string}
+    private String summarizeWithLlmStreaming(
+        String query,
+        List<MemoryHit> hits,
+        OverviewStream overviewStream,
+        Duration timeout
+    ) throws IOException, InterruptedException {
+        return openAiClient.chatTextStream(
+            SUMMARY_PROMPT + """
+            Return plain text only, without JSON or markdown.
             """,
-            payload,
+            summaryPayload(query, hits),
             config.summaryModel(),
             config.summaryFallbackModels(),
-            0.2
+            0.2,
+            timeout,
+            overviewStream::append
         );
-        return text(response, "summary");
-    }
-
-    private int mergeHits(Map<String, MemoryHit> bestHits, List<MemoryHit> hits) {
-        int newResults = 0;
-        for (MemoryHit hit : hits) {
-            String key = hit.spaceType().apiName() + ":" + hit.memoryId();
-            MemoryHit existing = bestHits.get(key);
-            if (existing == null) {
-                bestHits.put(key, hit);
-                newResults += 1;
-                continue;
-            }
-            if (hit.score() > existing.score()) {
-                bestHits.put(key, hit);
-            }
-        }
-        return newResults;
     }
 
-    private static List<MemoryHit> sortedHits(Iterable<MemoryHit> hits) {
-        List<MemoryHit> sorted = new ArrayList<>();
-        hits.forEach(sorted::add);
-        sorted.sort(Comparator.comparingDouble(MemoryHit::score).reversed());
-        return sorted;
+    private static Models.SearchResponse completeResponse(
+        Models.SearchResponse response,
+        Models.AiOverview aiOverview,
+        Models.AgentMetadata agentMetadata
+    ) {
+        return new Models.SearchResponse(
+            response.query(),
+            aiOverview,
+            response.directHits(),
+            response.ayahResults(),
+            response.totalResults(),
+            response.toolCalls(),
+            agentMetadata
+        );
     }
 
     private List<Models.ResultPreview> previewHits(List<MemoryHit> hits, int limit) {
@@ -1229,61 +2626,6 @@ public final class SearchService {
             .collect(Collectors.joining(", ", "[", "]"));
     }
 
-    private QueryIntent inferIntent(String query) {
-        String normalized = query.toLowerCase(Locale.ROOT);
-        if (isRevelationHistoryQuery(normalized)) {
-            return QueryIntent.EXPLANATION;
-        }
-        if (normalized.contains("ayah")
-            || normalized.contains("verse")
-            || normalized.contains("chapter")
-            || normalized.contains("surah")
-            || normalized.contains("sura")
-            || normalized.contains("آية")
-            || normalized.contains("سورة")) {
-            return QueryIntent.VERSE_REFERENCE;
-        }
-        if (detectTafsirSource(query) != null) {
-            return QueryIntent.EXPLANATION;
-        }
-        if (normalized.contains("tafsir")
-            || normalized.contains("interpret")
-            || normalized.contains("explain")
-            || normalized.contains("meaning")) {
-            return QueryIntent.EXPLANATION;
-        }
-        if (normalized.contains("reflection")
-            || normalized.contains("post")
-            || normalized.contains("community")) {
-            return QueryIntent.COMMUNITY;
-        }
-        if (normalized.contains("course")
-            || normalized.contains("lesson")
-            || normalized.contains("study")
-            || normalized.contains("learn")) {
-            return QueryIntent.LEARNING;
-        }
-        return QueryIntent.TOPICAL;
-    }
-
-    private boolean isRevelationHistoryQuery(String normalizedQuery) {
-        if (normalizedQuery == null || normalizedQuery.isBlank()) {
-            return false;
-        }
-        if (!(normalizedQuery.contains("revealed")
-            || normalizedQuery.contains("revelation")
-            || normalizedQuery.contains("نز")
-            || normalizedQuery.contains("وحي"))) {
-            return false;
-        }
-        return normalizedQuery.contains("ayah")
-            || normalizedQuery.contains("verse")
-            || normalizedQuery.contains("surah")
-            || normalizedQuery.contains("sura")
-            || normalizedQuery.contains("آية")
-            || normalizedQuery.contains("سورة");
-    }
-
     private List<SpaceType> prioritizeSpaces(QueryIntent intent, Set<SpaceType> requestedSpaces) {
         List<SpaceType> priority = switch (intent) {
             case VERSE_REFERENCE -> List.of(
@@ -1330,53 +2672,6 @@ public final class SearchService {
         return priority.stream().filter(requestedSpaces::contains).collect(Collectors.toList());
     }
 
-    private String rewriteQueryForSearch(String query, int step, int noNewResultsStreak) {
-        String normalized = query.replaceAll("\\s+", " ").trim();
-        TafsirSourceConstraint tafsirSource = detectTafsirSource(query);
-        if (tafsirSource != null) {
-            normalized = stripTafsirSourceMentions(normalized, tafsirSource)
-                .replaceAll("(?i)\\bwhat does\\b", " ")
-                .replaceAll("(?i)\\bwhat is\\b", " ")
-                .replaceAll("(?i)\\b(?:say|says)\\s+about\\b", " ")
-                .replaceAll("(?i)\\b(?:tafsir|commentary)\\b", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
-        }
-        if (step > 1 || noNewResultsStreak > 0) {
-            normalized = normalized
-                .replaceAll("(?i)\\bwhat does\\b", "")
-                .replaceAll("(?i)\\bshow me\\b", "")
-                .replaceAll("(?i)\\btell me about\\b", "")
-                .replaceAll("(?i)\\binterpretation of\\b", "")
-                .replaceAll("(?i)\\breflections? about\\b", "")
-                .replaceAll("\\s+", " ")
-                .trim();
-        }
-        return normalized.isBlank() ? query : normalized;
-    }
-
-    private TafsirSourceConstraint detectTafsirSource(String query) {
-        if (query == null || query.isBlank()) {
-            return null;
-        }
-        for (TafsirSourceDefinition definition : TAFSIR_SOURCE_DEFINITIONS) {
-            for (Pattern pattern : definition.queryPatterns()) {
-                if (pattern.matcher(query).find()) {
-                    return new TafsirSourceConstraint(definition.code(), definition.label(), definition.queryPatterns());
-                }
-            }
-        }
-        return null;
-    }
-
-    private String stripTafsirSourceMentions(String query, TafsirSourceConstraint tafsirSource) {
-        String stripped = query;
-        for (Pattern pattern : tafsirSource.queryPatterns()) {
-            stripped = pattern.matcher(stripped).replaceAll(" ");
-        }
-        return stripped.replaceAll("\\s+", " ").trim();
-    }
-
     private String heuristicOverview(List<MemoryHit> hits) {
         Set<String> refs = new LinkedHashSet<>();
         Set<String> sources = new LinkedHashSet<>();
@@ -1461,6 +2756,49 @@ public final class SearchService {
         return null;
     }
 
+    private void throwIfCancelled(
+        String traceId,
+        SearchCancellation cancellation,
+        int plannerStepsSkipped,
+        boolean overviewSkipped
+    ) {
+        if (!cancellation.isCancelled()) {
+            return;
+        }
+        metrics.recordCancelledSearch(plannerStepsSkipped, overviewSkipped);
+        logger.info(
+            "[{}] search.cancelled plannerStepsSkipped={} overviewSkipped={}",
+            traceId,
+            plannerStepsSkipped,
+            overviewSkipped
+        );
+        throw new SearchCancelledException("Search cancelled");
+    }
+
+    /**
+     * An upstream call was interrupted: restore the interrupt and abort if the search was cancelled.
+     * An interrupt with no cancellation behind it is an error, not a reason to fall back to the next
+     * upstream call.
+     */
+    private void onInterrupted(
+        String traceId,
+        SearchCancellation cancellation,
+        int plannerStepsSkipped,
+        boolean overviewSkipped,
+        InterruptedException ex
+    ) {
+        Thread.currentThread().interrupt();
+        throwIfCancelled(traceId, cancellation, plannerStepsSkipped, overviewSkipped);
+        throw new IllegalStateException("Search was interrupted", ex);
+    }
+
+    private Duration resolveTimeout(Integer requestedMs) {
+        if (requestedMs == null || requestedMs <= 0) {
+            return config.searchDeadline();
+        }
+        return Duration.ofMillis(Math.max(1_000, Math.min(requestedMs, 120_000)));
+    }
+
     private int resolveMaxSteps(Integer requested) {
         if (requested == null) {
             return 4;
@@ -1595,6 +2933,20 @@ public final class SearchService {
 
         void onToolCall(Models.AgentToolCall toolCall);
 
+        default void onPartialResults(Models.PartialResults partialResults) {
+        }
+
+        default void onOverviewDelta(Models.OverviewDelta overviewDelta) {
+        }
+
+        /**
+         * Whether anyone consumes the incremental events; work done only to produce them, such as
+         * streaming the overview, is skipped when not.
+         */
+        default boolean streaming() {
+            return true;
+        }
+
         static SearchEventListener noop() {
             return new SearchEventListener() {
                 @Override
@@ -1604,16 +2956,155 @@ public final class SearchService {
                 @Override
                 public void onToolCall(Models.AgentToolCall toolCall) {
                 }
+
+                @Override
+                public boolean streaming() {
+                    return false;
+                }
             };
         }
     }
 
-    private enum QueryIntent {
-        VERSE_REFERENCE,
-        EXPLANATION,
-        COMMUNITY,
-        LEARNING,
-        TOPICAL
+    public interface BatchListener {
+        void onResponse(int index, Models.SearchResponse response);
+
+        void onError(int index, String message);
+    }
+
+    public record BatchOutcome(
+        int requests,
+        int failed,
+        int retrievals,
+        int sharedRetrievals
+    ) {
+    }
+
+    /**
+     * Retrievals started from the heuristic's prediction before the planner decided. The planner's
+     * tool input can claim a space's retrieval when it asks for the same query with no larger limit.
+     */
+    private final class SpeculativeRetrieval {
+        private final ToolInput predicted;
+        private final Map<SpaceType, Future<List<MemoryHit>>> futures = new EnumMap<>(SpaceType.class);
+        private final List<Runnable> untrack = new ArrayList<>();
+
+        private SpeculativeRetrieval(ToolInput predicted) {
+            this.predicted = predicted;
+        }
+
+        private void add(SpaceType spaceType, Future<List<MemoryHit>> future, Runnable untrackHandle) {
+            futures.put(spaceType, future);
+            untrack.add(untrackHandle);
+        }
+
+        private Future<List<MemoryHit>> claim(SpaceType spaceType, ToolInput actual) {
+            if (actual.limit() > predicted.limit()
+                || !normalizeWhitespace(actual.query()).equalsIgnoreCase(normalizeWhitespace(predicted.query()))) {
+                return null;
+            }
+            Future<List<MemoryHit>> future = futures.remove(spaceType);
+            if (future != null) {
+                metrics.recordSpeculation(SearchMetrics.Speculation.USED);
+            }
+            return future;
+        }
+
+        private SpeculationLeftovers settle() {
+            List<MemoryHit> hits = new ArrayList<>();
+            EnumSet<SpaceType> spaces = EnumSet.noneOf(SpaceType.class);
+            int cancelled = 0;
+            for (Map.Entry<SpaceType, Future<List<MemoryHit>>> entry : futures.entrySet()) {
+                Future<List<MemoryHit>> future = entry.getValue();
+                if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        hits.addAll(future.get());
+                        spaces.add(entry.getKey());
+                        metrics.recordSpeculation(SearchMetrics.Speculation.KEPT);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ex) {
+                        logger.debug("Speculative retrieval failed", ex.getCause());
+                    }
+                } else if (future.cancel(true)) {
+                    cancelled++;
+                    metrics.recordSpeculation(SearchMetrics.Speculation.CANCELLED);
+                }
+            }
+            futures.clear();
+            untrack.forEach(Runnable::run);
+            return new SpeculationLeftovers(hits, spaces, cancelled);
+        }
+    }
+
+    private record SpeculationLeftovers(List<MemoryHit> hits, EnumSet<SpaceType> spaces, int cancelled) {
+    }
+
+    private static String normalizeWhitespace(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Turns overview text arriving from either backend into {@code overview_delta} events.
+     * OpenAI streams append-only deltas; GoodMem re-sends the whole reply, so replacements that
+     * extend the text already emitted become plain appends and anything else resets the overview.
+     */
+    private static final class OverviewStream {
+        private final SearchEventListener listener;
+        private final StringBuilder emitted = new StringBuilder();
+
+        private OverviewStream(SearchEventListener listener) {
+            this.listener = listener;
+        }
+
+        boolean streaming() {
+            return listener.streaming();
+        }
+
+        void append(String delta) {
+            if (delta == null || delta.isEmpty()) {
+                return;
+            }
+            emitted.append(delta);
+            listener.onOverviewDelta(new Models.OverviewDelta(delta, false));
+        }
+
+        void replace(String text) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            String current = emitted.toString();
+            if (text.equals(current)) {
+                return;
+            }
+            if (text.startsWith(current)) {
+                append(text.substring(current.length()));
+                return;
+            }
+            emitted.setLength(0);
+            emitted.append(text);
+            listener.onOverviewDelta(new Models.OverviewDelta(text, true));
+        }
+    }
+
+    /**
+     * How the LLM planner is consulted: once per step, or once for a whole plan whose actions run
+     * together.
+     */
+    private enum PlannerMode {
+        STEP,
+        ONCE;
+
+        static PlannerMode parse(String value) {
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "step" -> STEP;
+                case "once" -> ONCE;
+                default -> throw new IllegalArgumentException("planner must be \"step\" or \"once\"");
+            };
+        }
+
+        String apiName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
     }
 
     private record ToolInput(List<SpaceType> spaces, String query, int limit) {
@@ -1631,8 +3122,13 @@ public final class SearchService {
     ) {
     }
 
+    /**
+     * The planner's decision for a step; {@code alongside} holds further actions the LLM asked to run
+     * concurrently with it.
+     */
     private record PlanningOutcome(
         PlannerDecision decision,
+        List<PlannerDecision> alongside,
         boolean usedLlmPlanner,
         boolean usedHeuristicFallback
     ) {
@@ -1643,26 +3139,73 @@ public final class SearchService {
         String language,
         List<String> spaces,
         int limit,
-        int maxSteps
+        int maxSteps,
+        PlannerMode plannerMode,
+        boolean fast
     ) {
         static SearchCacheKey from(
-            String query,
+            String canonicalQuery,
             String language,
             Set<SpaceType> spaces,
             int limit,
-            int maxSteps
+            int maxSteps,
+            PlannerMode plannerMode,
+            boolean fast
         ) {
             return new SearchCacheKey(
-                query.trim().toLowerCase(Locale.ROOT),
+                canonicalQuery,
                 language.toLowerCase(Locale.ROOT),
                 spaces.stream()
                     .sorted(Comparator.comparingInt(Enum::ordinal))
                     .map(SpaceType::apiName)
                     .toList(),
                 limit,
-                maxSteps
+                maxSteps,
+                plannerMode,
+                fast
             );
         }
+
+        /**
+         * This key without its query: what a near-duplicate query must share to reuse the response.
+         */
+        SearchCacheKey scope() {
+            return new SearchCacheKey("", language, spaces, limit, maxSteps, plannerMode, fast);
+        }
+    }
+
+    private record ResolvedToolInput(ToolInput toolInput, boolean forced, String forcedReason) {
+    }
+
+    private record PendingTool(
+        int step,
+        ToolInput toolInput,
+        List<Future<List<MemoryHit>>> futures,
+        Set<Future<List<MemoryHit>>> speculative,
+        List<Runnable> untrack,
+        Set<SpaceType> rejected
+    ) {
+    }
+
+    /**
+     * One executable action: a direct lookup when {@code reference} is set, otherwise a search.
+     */
+    private record StepAction(
+        int step,
+        PlannerDecision decision,
+        String action,
+        QuranReference reference,
+        ResolvedToolInput resolved
+    ) {
+    }
+
+    private record PlannedSearch(StepAction action, PendingTool pending) {
+    }
+
+    /**
+     * What a step's actions found; {@code shed} is set when a bulkhead rejected one of their spaces.
+     */
+    private record StepOutcome(int newResultCount, int hitCount, List<DirectQuranLookup> lookups, boolean shed) {
     }
 
     private record ToolInputTightening(
@@ -1735,25 +3278,4 @@ public final class SearchService {
             return new DirectQuranLookup(List.of(), List.of(), 0, reference.requestedLabel(), reference);
         }
     }
-
-    private record TafsirSourceConstraint(
-        String code,
-        String label,
-        List<Pattern> queryPatterns
-    ) {
-    }
-
-    private record TafsirSourceDefinition(
-        String code,
-        String label,
-        List<Pattern> queryPatterns
-    ) {
-        static TafsirSourceDefinition of(String code, String label, String... queryPatterns) {
-            return new TafsirSourceDefinition(
-                code,
-                label,
-                List.of(queryPatterns).stream().map(Pattern::compile).collect(Collectors.toList())
-            );
-        }
-    }
 }
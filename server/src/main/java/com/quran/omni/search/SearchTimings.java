@@ -0,0 +1,67 @@
+package com.quran.omni.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wall time of each stage of one search. Every stage is also fed to the process-wide
+ * {@link SearchMetrics}, so instrumentation points only report once.
+ */
+final class SearchTimings {
+    private final SearchMetrics metrics;
+    private final long startedNanos = System.nanoTime();
+    private final List<Models.StageTiming> stages = new ArrayList<>();
+
+    SearchTimings(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void record(String stage, String variant, Integer step, long nanos) {
+        metrics.recordStage(stage, variant == null ? "" : variant, nanos);
+        Models.StageTiming timing = new Models.StageTiming(stage, blankToNull(variant), step, millis(nanos));
+        synchronized (stages) {
+            stages.add(timing);
+        }
+    }
+
+    Models.Timings snapshot(boolean cached) {
+        List<Models.StageTiming> copy;
+        synchronized (stages) {
+            copy = List.copyOf(stages);
+        }
+        return new Models.Timings(cached, millis(System.nanoTime() - startedNanos), copy);
+    }
+
+    /**
+     * Render timings as a {@code Server-Timing} header value, one metric per recorded stage.
+     */
+    static String serverTiming(Models.Timings timings) {
+        List<String> metrics = new ArrayList<>();
+        for (Models.StageTiming stage : timings.stages()) {
+            StringBuilder metric = new StringBuilder(stage.stage());
+            if (stage.variant() != null) {
+                metric.append('-').append(stage.variant().replaceAll("[^A-Za-z0-9_-]", "_"));
+            }
+            if (stage.step() != null) {
+                metric.append('-').append(stage.step());
+            }
+            metric.append(";dur=").append(format(stage.durationMs()));
+            metrics.add(metric.toString());
+        }
+        metrics.add("total;desc=\"" + (timings.cached() ? "cache hit" : "computed") + "\";dur=" + format(timings.totalMs()));
+        return String.join(", ", metrics);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.2f", millis);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,78 @@
+package com.quran.omni.search;
+
+import com.quran.omni.SpaceType;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One bounded executor per space, so a slow space only queues its own retrievals. Each has a fixed
+ * number of workers and a bounded queue; a retrieval that finds both full is rejected at once
+ * instead of waiting behind the backlog.
+ */
+final class SpaceBulkheads {
+    private final Map<SpaceType, Bulkhead> bulkheads = new EnumMap<>(SpaceType.class);
+
+    SpaceBulkheads(Map<SpaceType, Integer> concurrency, Map<SpaceType, Integer> queue, boolean virtualThreads) {
+        for (SpaceType spaceType : SpaceType.values()) {
+            int workers = Math.max(1, concurrency.getOrDefault(spaceType, 16));
+            int capacity = Math.max(1, queue.getOrDefault(spaceType, 64));
+            String prefix = "retrieve-" + spaceType.apiName() + "-";
+            ThreadFactory threads = virtualThreads
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : Thread.ofPlatform().name(prefix, 0).daemon(true).factory();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                workers,
+                workers,
+                30,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                threads,
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+            pool.allowCoreThreadTimeOut(true);
+            bulkheads.put(spaceType, new Bulkhead(pool, new LongAdder()));
+        }
+    }
+
+    /**
+     * Queue {@code task} on the space's executor.
+     *
+     * @throws RejectedExecutionException when the space's workers and queue are all taken
+     */
+    <T> Future<T> submit(SpaceType spaceType, Callable<T> task) {
+        Bulkhead bulkhead = bulkheads.get(spaceType);
+        try {
+            return bulkhead.pool().submit(task);
+        } catch (RejectedExecutionException ex) {
+            bulkhead.rejected().increment();
+            throw ex;
+        }
+    }
+
+    int queueDepth(SpaceType spaceType) {
+        return bulkheads.get(spaceType).pool().getQueue().size();
+    }
+
+    int activeCount(SpaceType spaceType) {
+        return bulkheads.get(spaceType).pool().getActiveCount();
+    }
+
+    long rejectedCount(SpaceType spaceType) {
+        return bulkheads.get(spaceType).rejected().sum();
+    }
+
+    void shutdownNow() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.pool().shutdownNow());
+    }
+
+    private record Bulkhead(ThreadPoolExecutor pool, LongAdder rejected) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.quran.omni.search;
+
+/**
+ * The (possibly shared, cached) response for one search call plus that call's own stage timings.
+ * Timings are only embedded in the response body when the request asked for them, and
+ * {@code approximate} marks a response served for a near-duplicate query, which is then shown
+ * under the caller's own {@code query}; the stored response and its bytes never carry per-request
+ * data.
+ */
+public record TimedSearchResponse(
+    CachedSearchResponse cached,
+    Models.Timings timings,
+    boolean includeTimings,
+    boolean approximate,
+    String query
+) {
+    /**
+     * Whether the body differs from the cached bytes and has to be encoded for this call.
+     */
+    public boolean perRequest() {
+        return includeTimings || approximate;
+    }
+
+    public Models.SearchResponse response() {
+        Models.SearchResponse response = cached.response();
+        if (!perRequest()) {
+            return response;
+        }
+        Models.AgentMetadata agent = response.agent();
+        return new Models.SearchResponse(
+            approximate ? query : response.query(),
+            response.aiOverview(),
+            response.directHits(),
+            response.ayahResults(),
+            response.totalResults(),
+            response.toolCalls(),
+            new Models.AgentMetadata(
+                agent.mode(),
+                agent.plannerModel(),
+                agent.plannerMode(),
+                agent.steps(),
+                agent.usedLlmPlanner(),
+                agent.usedHeuristicFallback(),
+                agent.deadlineTruncated(),
+                agent.incomplete(),
+                approximate,
+                includeTimings ? timings : null
+            )
+        );
+    }
+
+    public String serverTiming() {
+        return SearchTimings.serverTiming(timings);
+    }
+}